@@ -0,0 +1,254 @@
+package com.rojel.wesv;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * Clip of the cells of a {@link SegmentGrid} against the chunks the client of
+ * a viewer displays particles in: loaded chunks within its effective view
+ * distance.
+ *
+ * The clip is evaluated once per cell rather than per point and kept until
+ * the viewer enters another chunk, another grid is shown or a chunk within
+ * its view distance is loaded or unloaded, so a render pass only reads one
+ * bit per cell.
+ */
+public final class ChunkClip {
+
+	/**
+	 * `Player#getClientViewDistance()`, which only newer server versions
+	 * have, null if it is missing.
+	 */
+	private static final Method CLIENT_VIEW_DISTANCE = findClientViewDistance();
+
+	/**
+	 * Number of chunk changes remembered per world. A clip that missed more
+	 * changes than that is recomputed without looking at them.
+	 */
+	private static final int CHANGE_CAPACITY = 256;
+
+	/**
+	 * Chunks loaded or unloaded in every world, by UID of the world.
+	 */
+	private static final Map<UUID, ChunkChanges> CHANGES = new HashMap<>();
+
+	private SegmentGrid grid;
+	private World world;
+	private int chunkX;
+	private int chunkZ;
+	private int viewDistance;
+
+	/**
+	 * Number of chunk changes of the world already taken into account.
+	 */
+	private long generation;
+
+	/**
+	 * Bit set of the cells that are clipped away.
+	 */
+	private long[] hidden = new long[1];
+
+	private static Method findClientViewDistance() {
+		try {
+			return Player.class.getMethod("getClientViewDistance");
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records that a chunk has been loaded or unloaded, which invalidates the
+	 * clips of the viewers having it within their view distance. Has to be
+	 * called from the server thread.
+	 *
+	 * @param world
+	 *            World of the chunk.
+	 * @param chunkX
+	 *            X coordinate of the chunk.
+	 * @param chunkZ
+	 *            Z coordinate of the chunk.
+	 */
+	public static void chunkChanged(final World world, final int chunkX, final int chunkZ) {
+		CHANGES.computeIfAbsent(world.getUID(), uid -> new ChunkChanges()).add(chunkX, chunkZ);
+	}
+
+	/**
+	 * Forgets the chunk changes of an unloaded world. Has to be called from
+	 * the server thread.
+	 *
+	 * @param world
+	 *            World that has been unloaded.
+	 */
+	public static void forgetWorld(final World world) {
+		CHANGES.remove(world.getUID());
+	}
+
+	/**
+	 * Retrieves the view distance of a viewer, the smaller of its client
+	 * setting, where the server exposes it, and the server view distance.
+	 *
+	 * @param player
+	 *            Viewer to get the view distance of.
+	 * @param serverViewDistance
+	 *            View distance of the server in chunks.
+	 * @return Returns the effective view distance in chunks.
+	 */
+	public static int getEffectiveViewDistance(final Player player, final int serverViewDistance) {
+		if (CLIENT_VIEW_DISTANCE != null) {
+			try {
+				final int client = (int) CLIENT_VIEW_DISTANCE.invoke(player);
+				if (client > 0) {
+					return Math.min(client, serverViewDistance);
+				}
+			} catch (final ReflectiveOperationException | ClassCastException e) {
+				// fall back to the server view distance below
+			}
+		}
+		return serverViewDistance;
+	}
+
+	/**
+	 * Recomputes the clip if the viewer entered another chunk, changed its
+	 * view distance or another grid is shown, or if a chunk within its view
+	 * distance has been loaded or unloaded since the last update.
+	 *
+	 * @param location
+	 *            Location of the viewer.
+	 * @param grid
+	 *            Grid of the points shown to the viewer.
+	 * @param viewDistance
+	 *            Effective view distance of the viewer in chunks.
+	 * @return Returns true if the clip has been recomputed.
+	 */
+	public boolean update(final Location location, final SegmentGrid grid, final int viewDistance) {
+		final World currentWorld = location.getWorld();
+		final int currentX = (int) Math.floor(location.getX()) >> 4;
+		final int currentZ = (int) Math.floor(location.getZ()) >> 4;
+
+		final ChunkChanges changes = CHANGES.get(currentWorld.getUID());
+		final long currentGeneration = changes == null ? 0L : changes.count;
+
+		if (grid == this.grid && currentWorld == this.world && currentX == this.chunkX && currentZ == this.chunkZ
+				&& viewDistance == this.viewDistance) {
+			if (currentGeneration == this.generation) {
+				return false;
+			}
+
+			if (currentGeneration > this.generation
+					&& !changes.isAnyWithin(this.generation, currentX, currentZ, viewDistance)) {
+				this.generation = currentGeneration;
+				return false;
+			}
+		}
+
+		this.grid = grid;
+		this.world = currentWorld;
+		this.chunkX = currentX;
+		this.chunkZ = currentZ;
+		this.viewDistance = viewDistance;
+		this.generation = currentGeneration;
+
+		final int cellCount = grid.getCellCount();
+		if (this.hidden.length < (cellCount + 63) >>> 6) {
+			this.hidden = new long[(cellCount + 63) >>> 6];
+		} else {
+			Arrays.fill(this.hidden, 0L);
+		}
+
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (!this.isAnyChunkShown(grid, cell)) {
+				this.hidden[cell >>> 6] |= 1L << cell;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether any loaded chunk within the view distance overlaps the
+	 * bounding box of a cell.
+	 */
+	private boolean isAnyChunkShown(final SegmentGrid grid, final int cell) {
+		final int fromX = Math.max((int) Math.floor(grid.getCellMinX(cell)) >> 4, this.chunkX - this.viewDistance);
+		final int toX = Math.min((int) Math.floor(grid.getCellMaxX(cell)) >> 4, this.chunkX + this.viewDistance);
+		final int fromZ = Math.max((int) Math.floor(grid.getCellMinZ(cell)) >> 4, this.chunkZ - this.viewDistance);
+		final int toZ = Math.min((int) Math.floor(grid.getCellMaxZ(cell)) >> 4, this.chunkZ + this.viewDistance);
+
+		for (int x = fromX; x <= toX; x++) {
+			for (int z = fromZ; z <= toZ; z++) {
+				if (this.world.isChunkLoaded(x, z)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the points of a cell can be displayed by the client.
+	 *
+	 * @param cell
+	 *            Index of the cell in the grid of the last update.
+	 * @return Returns false if the cell is clipped away.
+	 */
+	public boolean isCellShown(final int cell) {
+		return (this.hidden[cell >>> 6] & 1L << cell) == 0;
+	}
+
+	/**
+	 * Retrieves the effective view distance of the last update.
+	 *
+	 * @return Returns the view distance in chunks.
+	 */
+	public int getViewDistance() {
+		return this.viewDistance;
+	}
+
+	/**
+	 * Ring of the latest chunks loaded or unloaded in a world.
+	 */
+	private static final class ChunkChanges {
+
+		private final int[] chunkXs = new int[CHANGE_CAPACITY];
+		private final int[] chunkZs = new int[CHANGE_CAPACITY];
+
+		/**
+		 * Number of changes ever recorded, the latest one is stored at
+		 * `(count - 1) % CHANGE_CAPACITY`.
+		 */
+		private long count;
+
+		private void add(final int chunkX, final int chunkZ) {
+			final int slot = (int) (this.count % CHANGE_CAPACITY);
+			this.chunkXs[slot] = chunkX;
+			this.chunkZs[slot] = chunkZ;
+			this.count++;
+		}
+
+		/**
+		 * Checks whether any change recorded after the first `since` ones lies
+		 * within the view distance of the given chunk. Changes that have
+		 * already been overwritten count as within.
+		 */
+		private boolean isAnyWithin(final long since, final int chunkX, final int chunkZ, final int viewDistance) {
+			if (this.count - since > CHANGE_CAPACITY) {
+				return true;
+			}
+
+			for (long change = since; change < this.count; change++) {
+				final int slot = (int) (change % CHANGE_CAPACITY);
+				if (Math.abs(this.chunkXs[slot] - chunkX) <= viewDistance
+						&& Math.abs(this.chunkZs[slot] - chunkZ) <= viewDistance) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -86,10 +86,6 @@ public class Configuration {
 		 * Maximum distance to see selection particles from.
 		 */
 		PARTICLEDISTANCE("particleDistance", 32),
-		/**
-		 * Maximum size of the visualized selection itself.
-		 */
-		MAXSIZE("maxSize", 10000),
 		/**
 		 * Language translation string from config.
 		 */
@@ -102,14 +98,6 @@ public class Configuration {
 		 * Language translation string from config.
 		 */
 		LANGPLAYERSONLY("lang.playersOnly", "Only a player can toggle his visualizer."),
-		/**
-		 * Language translation string from config.
-		 */
-		LANGSELECTIONSIZEOF("lang.selectionSizeOf", "The visualizer only works with selections up to a size of "),
-		/**
-		 * Language translation string from config.
-		 */
-		LANGBLOCKS("lang.blocks", "blocks"),
 		/**
 		 * Language translation string from config.
 		 */
@@ -123,7 +111,107 @@ public class Configuration {
 		/**
 		 * Additional data for some particles (can be a color or a material)
 		 */
-		PARTICLE_DATA("particleData", "255,0,0");
+		PARTICLE_DATA("particleData", "255,0,0"),
+
+		/**
+		 * Memory (in megabytes) the shared geometry cache may use.
+		 */
+		GEOMETRY_CACHE_MEMORY("geometryCacheMaxMemory", 16),
+
+		/**
+		 * Number of threads computing selection shapes off the server thread,
+		 * and of those plotting the pieces of large selections in parallel.
+		 */
+		SHAPE_WORKER_THREADS("shapeWorkerThreads", 2),
+
+		/**
+		 * Estimated number of points from which a selection is plotted in
+		 * parallel, 0 to disable.
+		 */
+		PARALLEL_PLOTTING_THRESHOLD("parallelPlottingThreshold", 50000),
+
+		/**
+		 * Distance (in blocks) after which every further step coarsens the
+		 * shown points, 0 to disable.
+		 */
+		LOD_DISTANCE("lodDistance", 16),
+
+		/**
+		 * Whether points outside of the view of a player are skipped.
+		 */
+		VIEW_CONE_CULLING("viewConeCulling", false),
+
+		/**
+		 * Angle (in degrees) added to the view cone, so points at the edge of
+		 * the screen are still shown.
+		 */
+		VIEW_CONE_MARGIN("viewConeMargin", 15),
+
+		/**
+		 * Whether points in chunks a player's client does not display, those
+		 * not loaded or beyond its view distance, are skipped.
+		 */
+		CHUNK_CLIPPING("chunkClipping", true),
+
+		/**
+		 * Whether points inside of occluding blocks are skipped.
+		 */
+		OCCLUSION_CULLING("occlusionCulling", false),
+
+		/**
+		 * Time (in ticks) after which occlusion masks are computed again even
+		 * if no block change has been noticed, 0 to disable. Catches changes
+		 * no event is listened to for, such as blocks updated by physics.
+		 */
+		OCCLUSION_REFRESH_INTERVAL("occlusionRefreshInterval", 200),
+
+		/**
+		 * Distance (in blocks) a player may move before the points sent to
+		 * them are collected again, 0 to collect them on every update.
+		 */
+		VISIBLE_SET_THRESHOLD("visibleSetThreshold", 1.0),
+
+		/**
+		 * Whether the particles of an update are spread over the ticks until
+		 * the next one, with every player starting on a different tick.
+		 */
+		TIME_SLICING("timeSlicing", true),
+
+		/**
+		 * Estimated number of points a selection may be plotted with before
+		 * its gaps are coarsened, up to four times, and finally before it is
+		 * streamed as a wireframe, 0 for no limit. Wireframes are neither
+		 * deduplicated, occlusion culled nor clipped per chunk.
+		 */
+		MAX_PARTICLES("maxParticles", 100000),
+
+		/**
+		 * Maximum number of particles sent to a player per update, filled by
+		 * priority tier and nearest first, 0 for no limit.
+		 */
+		MAX_PARTICLES_PER_VIEWER("maxParticlesPerViewer", 5000),
+
+		/**
+		 * Maximum number of particles sent to all players together per tick,
+		 * shared by weight, 0 for no limit. Particles over the limit are sent
+		 * on the next tick.
+		 */
+		MAX_PARTICLES_PER_TICK("maxParticlesPerTick", 20000),
+
+		/**
+		 * Weight of the share of the particles per tick of a player holding
+		 * the selection item, all other players having a weight of 1.
+		 */
+		WAND_HOLDER_WEIGHT("wandHolderWeight", 4),
+
+		/**
+		 * Time (in ticks) after which the plotted points of an unchanged
+		 * selection are replaced by its wireframe, 0 to disable. Wireframes
+		 * are neither occlusion culled nor clipped to loaded chunks and sample
+		 * oblong ellipses at even angles, so they may look slightly different
+		 * from the plotted points.
+		 */
+		IDLE_GEOMETRY_DELAY("idleGeometryDelay", 0);
 
 		/**
 		 * The string value of an ENUM.
@@ -221,8 +309,6 @@ public class Configuration {
 
 		this.configItems.put(ConfigValue.PARTICLEDISTANCE, this.config.getInt(ConfigValue.PARTICLEDISTANCE.toString()));
 
-		this.configItems.put(ConfigValue.MAXSIZE, this.config.getInt(ConfigValue.MAXSIZE.toString()));
-
 		// language config
 		this.configItems.put(ConfigValue.LANGVISUALIZERENABLED,
 				this.config.getString(ConfigValue.LANGVISUALIZERENABLED.toString()));
@@ -233,11 +319,6 @@ public class Configuration {
 		this.configItems.put(ConfigValue.LANGPLAYERSONLY,
 				this.config.getString(ConfigValue.LANGPLAYERSONLY.toString()));
 
-		this.configItems.put(ConfigValue.LANGSELECTIONSIZEOF,
-				this.config.getString(ConfigValue.LANGSELECTIONSIZEOF.toString()));
-
-		this.configItems.put(ConfigValue.LANGBLOCKS, this.config.getString(ConfigValue.LANGBLOCKS.toString()));
-
 		this.configItems.put(ConfigValue.LANGCONFIGRELOADED,
 				this.config.getString(ConfigValue.LANGCONFIGRELOADED.toString()));
 
@@ -245,6 +326,37 @@ public class Configuration {
 
 		this.configItems.put(ConfigValue.PARTICLE_DATA,
 				getParticleData(this.config.getString(ConfigValue.PARTICLE_DATA.toString())));
+
+		this.configItems.put(ConfigValue.GEOMETRY_CACHE_MEMORY,
+				this.config.getInt(ConfigValue.GEOMETRY_CACHE_MEMORY.toString()));
+
+		this.configItems.put(ConfigValue.SHAPE_WORKER_THREADS,
+				this.config.getInt(ConfigValue.SHAPE_WORKER_THREADS.toString()));
+
+		this.configItems.put(ConfigValue.PARALLEL_PLOTTING_THRESHOLD,
+				this.config.getInt(ConfigValue.PARALLEL_PLOTTING_THRESHOLD.toString()));
+		this.configItems.put(ConfigValue.LOD_DISTANCE, this.config.getInt(ConfigValue.LOD_DISTANCE.toString()));
+		this.configItems.put(ConfigValue.VIEW_CONE_CULLING,
+				this.config.getBoolean(ConfigValue.VIEW_CONE_CULLING.toString()));
+		this.configItems.put(ConfigValue.VIEW_CONE_MARGIN,
+				this.config.getInt(ConfigValue.VIEW_CONE_MARGIN.toString()));
+		this.configItems.put(ConfigValue.CHUNK_CLIPPING, this.config.getBoolean(ConfigValue.CHUNK_CLIPPING.toString()));
+		this.configItems.put(ConfigValue.OCCLUSION_CULLING,
+				this.config.getBoolean(ConfigValue.OCCLUSION_CULLING.toString()));
+		this.configItems.put(ConfigValue.OCCLUSION_REFRESH_INTERVAL,
+				this.config.getInt(ConfigValue.OCCLUSION_REFRESH_INTERVAL.toString()));
+		this.configItems.put(ConfigValue.VISIBLE_SET_THRESHOLD,
+				this.config.getDouble(ConfigValue.VISIBLE_SET_THRESHOLD.toString()));
+		this.configItems.put(ConfigValue.TIME_SLICING, this.config.getBoolean(ConfigValue.TIME_SLICING.toString()));
+		this.configItems.put(ConfigValue.MAX_PARTICLES, this.config.getInt(ConfigValue.MAX_PARTICLES.toString()));
+		this.configItems.put(ConfigValue.MAX_PARTICLES_PER_VIEWER,
+				this.config.getInt(ConfigValue.MAX_PARTICLES_PER_VIEWER.toString()));
+		this.configItems.put(ConfigValue.MAX_PARTICLES_PER_TICK,
+				this.config.getInt(ConfigValue.MAX_PARTICLES_PER_TICK.toString()));
+		this.configItems.put(ConfigValue.WAND_HOLDER_WEIGHT,
+				this.config.getInt(ConfigValue.WAND_HOLDER_WEIGHT.toString()));
+		this.configItems.put(ConfigValue.IDLE_GEOMETRY_DELAY,
+				this.config.getInt(ConfigValue.IDLE_GEOMETRY_DELAY.toString()));
 	}
 
 	/**
@@ -426,15 +538,6 @@ public class Configuration {
 		return (int) this.configItems.get(ConfigValue.PARTICLEDISTANCE);
 	}
 
-	/**
-	 * Retrieves the "maxSize" property value.
-	 * 
-	 * @return Returns the "maxSize" property value.
-	 */
-	public int getMaxSize() {
-		return (int) this.configItems.get(ConfigValue.MAXSIZE);
-	}
-
 	/**
 	 * Retrieves translation for the "langVisualizerEnabled" text.
 	 * 
@@ -462,24 +565,6 @@ public class Configuration {
 		return color((String) this.configItems.get(ConfigValue.LANGPLAYERSONLY));
 	}
 
-	/**
-	 * Retrieves translation for the "selectionSizeOf" text.
-	 * 
-	 * @return Translation of "selectionSizeOf".
-	 */
-	public String getLangSelectionSizeOf() {
-		return color((String) this.configItems.get(ConfigValue.LANGSELECTIONSIZEOF));
-	}
-
-	/**
-	 * Retrieves translation for the "langBlocks" text.
-	 * 
-	 * @return Translation of "langBlocks".
-	 */
-	public String getLangBlocks() {
-		return color((String) this.configItems.get(ConfigValue.LANGBLOCKS));
-	}
-
 	/**
 	 * Retrieves translation for the "configReloaded" text.
 	 * 
@@ -498,6 +583,151 @@ public class Configuration {
 		return this.configItems.get(ConfigValue.PARTICLE_DATA);
 	}
 
+	/**
+	 * Retrieves the "geometryCacheMaxMemory" property value.
+	 *
+	 * @return Returns the "geometryCacheMaxMemory" property value (megabytes).
+	 */
+	public int getGeometryCacheMaxMemory() {
+		return (int) this.configItems.get(ConfigValue.GEOMETRY_CACHE_MEMORY);
+	}
+
+	/**
+	 * Retrieves the "shapeWorkerThreads" property value. Only read when the
+	 * plugin is enabled.
+	 *
+	 * @return Returns the "shapeWorkerThreads" property value.
+	 */
+	public int getShapeWorkerThreads() {
+		return (int) this.configItems.get(ConfigValue.SHAPE_WORKER_THREADS);
+	}
+
+	/**
+	 * Retrieves the "parallelPlottingThreshold" property value.
+	 *
+	 * @return Returns the "parallelPlottingThreshold" property value.
+	 */
+	public int getParallelPlottingThreshold() {
+		return (int) this.configItems.get(ConfigValue.PARALLEL_PLOTTING_THRESHOLD);
+	}
+
+	/**
+	 * Retrieves the "lodDistance" property value.
+	 *
+	 * @return Returns the "lodDistance" property value.
+	 */
+	public int getLodDistance() {
+		return (int) this.configItems.get(ConfigValue.LOD_DISTANCE);
+	}
+
+	/**
+	 * Retrieves the "viewConeCulling" property value.
+	 *
+	 * @return Returns the "viewConeCulling" property value.
+	 */
+	public boolean isViewConeCullingEnabled() {
+		return (boolean) this.configItems.get(ConfigValue.VIEW_CONE_CULLING);
+	}
+
+	/**
+	 * Retrieves the "viewConeMargin" property value.
+	 *
+	 * @return Returns the "viewConeMargin" property value.
+	 */
+	public int getViewConeMargin() {
+		return (int) this.configItems.get(ConfigValue.VIEW_CONE_MARGIN);
+	}
+
+	/**
+	 * Retrieves the "chunkClipping" property value.
+	 *
+	 * @return Returns the "chunkClipping" property value.
+	 */
+	public boolean isChunkClippingEnabled() {
+		return (boolean) this.configItems.get(ConfigValue.CHUNK_CLIPPING);
+	}
+
+	/**
+	 * Retrieves the "occlusionCulling" property value.
+	 *
+	 * @return Returns the "occlusionCulling" property value.
+	 */
+	public boolean isOcclusionCullingEnabled() {
+		return (boolean) this.configItems.get(ConfigValue.OCCLUSION_CULLING);
+	}
+
+	/**
+	 * Retrieves the "occlusionRefreshInterval" property value.
+	 *
+	 * @return Returns the "occlusionRefreshInterval" property value.
+	 */
+	public int getOcclusionRefreshInterval() {
+		return (int) this.configItems.get(ConfigValue.OCCLUSION_REFRESH_INTERVAL);
+	}
+
+	/**
+	 * Retrieves the "visibleSetThreshold" property value.
+	 *
+	 * @return Returns the "visibleSetThreshold" property value.
+	 */
+	public double getVisibleSetThreshold() {
+		return (double) this.configItems.get(ConfigValue.VISIBLE_SET_THRESHOLD);
+	}
+
+	/**
+	 * Retrieves the "timeSlicing" property value.
+	 *
+	 * @return Returns the "timeSlicing" property value.
+	 */
+	public boolean isTimeSlicingEnabled() {
+		return (boolean) this.configItems.get(ConfigValue.TIME_SLICING);
+	}
+
+	/**
+	 * Retrieves the "maxParticles" property value.
+	 *
+	 * @return Returns the "maxParticles" property value.
+	 */
+	public int getMaxParticles() {
+		return (int) this.configItems.get(ConfigValue.MAX_PARTICLES);
+	}
+
+	/**
+	 * Retrieves the "maxParticlesPerViewer" property value.
+	 *
+	 * @return Returns the "maxParticlesPerViewer" property value.
+	 */
+	public int getMaxParticlesPerViewer() {
+		return (int) this.configItems.get(ConfigValue.MAX_PARTICLES_PER_VIEWER);
+	}
+
+	/**
+	 * Retrieves the "maxParticlesPerTick" property value.
+	 *
+	 * @return Returns the "maxParticlesPerTick" property value.
+	 */
+	public int getMaxParticlesPerTick() {
+		return (int) this.configItems.get(ConfigValue.MAX_PARTICLES_PER_TICK);
+	}
+
+	/**
+	 * Retrieves the "wandHolderWeight" property value.
+	 *
+	 * @return Returns the "wandHolderWeight" property value.
+	 */
+	public int getWandHolderWeight() {
+		return (int) this.configItems.get(ConfigValue.WAND_HOLDER_WEIGHT);
+	}
+
+	/**
+	 * Retrieves the "idleGeometryDelay" property value.
+	 *
+	 * @return Returns the "idleGeometryDelay" property value.
+	 */
+	public int getIdleGeometryDelay() {
+		return (int) this.configItems.get(ConfigValue.IDLE_GEOMETRY_DELAY);
+	}
+
 	private String color(final String s) {
 		return ChatColor.translateAlternateColorCodes('&', s);
 	}
@@ -148,9 +148,6 @@ public class CustomMetrics {
             // create graph for Particle distance
             this.addMcstatsGraph(metrics, "Particle distance", "" + this.config.getParticleDistance() + "");
 
-            // create graph for Maximum selection size
-            this.addMcstatsGraph(metrics, "Maximum selection size", "" + this.config.getMaxSize() + "");
-
             // start collecting statistics
             metrics.start();
         } catch (final IOException e) {
@@ -206,9 +203,6 @@ public class CustomMetrics {
 
         // create graph for Particle distance
         this.addBcstatsGraph(bmetrics, "particle_distance", "" + this.config.getParticleDistance() + "");
-
-        // create graph for Maximum selection size
-        this.addBcstatsGraph(bmetrics, "max_selection_size", "" + this.config.getMaxSize() + "");
     }
 
     /**
@@ -0,0 +1,44 @@
+package com.rojel.wesv;
+
+/**
+ * Distance based levels of detail used when rendering a selection.
+ *
+ * Every `lodDistance` blocks the level increases by one: level 0 shows every
+ * point, level 1 every 2nd, level 2 every 4th and level 3 every 4th point of
+ * the outline only.
+ */
+public final class DetailLevel {
+
+	/**
+	 * Coarsest level, fill lines are not shown at all.
+	 */
+	public static final int OUTLINE_ONLY = 3;
+
+	private DetailLevel() {
+	}
+
+	/**
+	 * Picks the level for something at the given distance.
+	 *
+	 * @param distanceSquared
+	 *            Squared distance to the nearest point of it.
+	 * @param lodDistance
+	 *            Configured distance between two levels, 0 to always use
+	 *            level 0.
+	 * @return Returns the level between 0 and {@link #OUTLINE_ONLY}.
+	 */
+	public static int of(final double distanceSquared, final int lodDistance) {
+		return lodDistance > 0 ? Math.min((int) (Math.sqrt(distanceSquared) / lodDistance), OUTLINE_ONLY) : 0;
+	}
+
+	/**
+	 * Retrieves the distance between two shown points of a level.
+	 *
+	 * @param level
+	 *            Level of detail.
+	 * @return Returns 1, 2 or 4.
+	 */
+	public static int stride(final int level) {
+		return 1 << Math.min(level, 2);
+	}
+}
@@ -0,0 +1,183 @@
+package com.rojel.wesv;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of plotted selections, shared by all players.
+ *
+ * Entries are keyed by a {@link RegionFingerprint} together with the
+ * {@link PlotSettings} used to plot it. The total estimated heap usage of all
+ * cached point buffers is kept below a configurable budget by evicting the
+ * least recently used entries first.
+ */
+public class GeometryCache {
+
+	/**
+	 * Cached geometry in access order, the eldest entry is evicted first.
+	 */
+	private final LinkedHashMap<Key, PointBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Maximum estimated memory (bytes) all cached entries may use together.
+	 */
+	private long maxMemory;
+
+	/**
+	 * Estimated memory (bytes) currently used by the cached entries.
+	 */
+	private long usedMemory;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxMemory
+	 *            Maximum estimated memory in bytes all entries may use, 0
+	 *            disables caching.
+	 */
+	public GeometryCache(final long maxMemory) {
+		this.maxMemory = maxMemory;
+	}
+
+	/**
+	 * Looks up the geometry plotted for the given region fingerprint and
+	 * settings.
+	 *
+	 * @param fingerprint
+	 *            Fingerprint of the region.
+	 * @param settings
+	 *            Settings the geometry has been plotted with.
+	 * @return Returns the cached point buffer or null on a cache miss.
+	 */
+	public synchronized PointBuffer get(final RegionFingerprint fingerprint, final PlotSettings settings) {
+		final PointBuffer points = this.entries.get(new Key(fingerprint, settings));
+
+		if (points == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return points;
+	}
+
+	/**
+	 * Stores plotted geometry, evicting least recently used entries until the
+	 * memory budget is respected again.
+	 *
+	 * @param fingerprint
+	 *            Fingerprint of the plotted region.
+	 * @param settings
+	 *            Settings the geometry has been plotted with.
+	 * @param points
+	 *            Sealed point buffer holding the geometry.
+	 */
+	public synchronized void put(final RegionFingerprint fingerprint, final PlotSettings settings,
+			final PointBuffer points) {
+		final Key key = new Key(fingerprint, settings);
+		final long size = key.estimateMemoryUsage() + points.estimateMemoryUsage();
+
+		if (size > this.maxMemory) {
+			return;
+		}
+
+		final PointBuffer previous = this.entries.put(key, points);
+		if (previous != null) {
+			this.usedMemory -= key.estimateMemoryUsage() + previous.estimateMemoryUsage();
+		}
+
+		this.usedMemory += size;
+		this.evict();
+	}
+
+	/**
+	 * Changes the memory budget and evicts entries that no longer fit.
+	 *
+	 * @param maxMemory
+	 *            New maximum estimated memory in bytes.
+	 */
+	public synchronized void setMaxMemory(final long maxMemory) {
+		this.maxMemory = maxMemory;
+		this.evict();
+	}
+
+	/**
+	 * Removes all entries, the hit and miss counters are kept.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.usedMemory = 0;
+	}
+
+	private void evict() {
+		final Iterator<Map.Entry<Key, PointBuffer>> iterator = this.entries.entrySet().iterator();
+
+		while (this.usedMemory > this.maxMemory && iterator.hasNext()) {
+			final Map.Entry<Key, PointBuffer> eldest = iterator.next();
+			this.usedMemory -= eldest.getKey().estimateMemoryUsage() + eldest.getValue().estimateMemoryUsage();
+			iterator.remove();
+			this.evictions++;
+		}
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized long getUsedMemory() {
+		return this.usedMemory;
+	}
+
+	public synchronized long getMaxMemory() {
+		return this.maxMemory;
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Cache key combining a region fingerprint with the plot settings.
+	 */
+	private static final class Key {
+
+		private final RegionFingerprint fingerprint;
+		private final PlotSettings settings;
+
+		private Key(final RegionFingerprint fingerprint, final PlotSettings settings) {
+			this.fingerprint = fingerprint;
+			this.settings = settings;
+		}
+
+		private long estimateMemoryUsage() {
+			return 24 + 56 + this.fingerprint.estimateMemoryUsage();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key other = (Key) obj;
+			return this.fingerprint.equals(other.fingerprint) && this.settings.equals(other.settings);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.fingerprint.hashCode() + this.settings.hashCode();
+		}
+	}
+}
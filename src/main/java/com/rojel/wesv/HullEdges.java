@@ -0,0 +1,306 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.polyhedron.Triangle;
+
+/**
+ * Unique edges of a convex hull, extracted from its triangles.
+ *
+ * Every vertex gets an index and every edge is stored once in an open
+ * addressing set keyed by its two vertex indices packed into a long. An edge
+ * shared by two triangles facing the same direction lies inside a flat face
+ * of the hull, such as the diagonal of a cube side, and is dropped, so only
+ * the true hull edges remain.
+ */
+public final class HullEdges {
+
+	/**
+	 * Minimum dot product of the unit normals of two triangles sharing an
+	 * edge for them to be considered coplanar.
+	 */
+	private static final double COPLANAR_DOT = 1.0 - 1e-9;
+
+	/**
+	 * Maximum number of edges kept in all cached hulls together.
+	 */
+	private static final int MAX_CACHED_EDGES = 1 << 16;
+
+	/**
+	 * Cached hulls by their triangle coordinates in access order.
+	 */
+	private static final LinkedHashMap<Key, HullEdges> HULLS = new LinkedHashMap<>(16, 0.75f, true);
+
+	private static int cachedEdges;
+
+	/**
+	 * Coordinates of the vertices touched by an edge, `x, y, z` each.
+	 */
+	private final double[] vertices;
+
+	/**
+	 * Vertex indices of both ends of every edge.
+	 */
+	private final int[] edges;
+
+	/**
+	 * Extracts the edges of the given triangles.
+	 *
+	 * @param triangles
+	 *            Coordinates of the three vertices of every triangle, 9 values
+	 *            per triangle. Triangles have to be oriented consistently.
+	 */
+	HullEdges(final double[] triangles) {
+		final int triangleCount = triangles.length / 9;
+		final VertexIndex vertexIndex = new VertexIndex(triangleCount * 3);
+		final int[] corners = new int[3];
+
+		final int capacity = Integer.highestOneBit(Math.max(triangleCount * 3, 1)) << 2;
+		final long[] keys = new long[capacity];
+		final int[] slotEdges = new int[capacity];
+		final int[] ends = new int[triangleCount * 6];
+		final double[] normals = new double[triangleCount * 9];
+		final boolean[] inner = new boolean[triangleCount * 3];
+		int edgeCount = 0;
+
+		for (int t = 0; t < triangleCount; t++) {
+			final int o = t * 9;
+			final double ux = triangles[o + 3] - triangles[o];
+			final double uy = triangles[o + 4] - triangles[o + 1];
+			final double uz = triangles[o + 5] - triangles[o + 2];
+			final double vx = triangles[o + 6] - triangles[o];
+			final double vy = triangles[o + 7] - triangles[o + 1];
+			final double vz = triangles[o + 8] - triangles[o + 2];
+			double nx = uy * vz - uz * vy;
+			double ny = uz * vx - ux * vz;
+			double nz = ux * vy - uy * vx;
+			final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+			if (length == 0.0) {
+				continue;
+			}
+
+			nx /= length;
+			ny /= length;
+			nz /= length;
+
+			for (int i = 0; i < 3; i++) {
+				corners[i] = vertexIndex.indexOf(triangles[o + i * 3], triangles[o + i * 3 + 1],
+						triangles[o + i * 3 + 2]);
+			}
+
+			for (int i = 0; i < 3; i++) {
+				final int a = Math.min(corners[i], corners[(i + 1) % 3]);
+				final int b = Math.max(corners[i], corners[(i + 1) % 3]);
+				final long key = (long) a << 32 | b;
+				int slot = mix(key) & capacity - 1;
+
+				while (keys[slot] != 0 && keys[slot] != key) {
+					slot = slot + 1 & capacity - 1;
+				}
+
+				if (keys[slot] == 0) {
+					keys[slot] = key;
+					slotEdges[slot] = edgeCount;
+					ends[edgeCount * 2] = a;
+					ends[edgeCount * 2 + 1] = b;
+					normals[edgeCount * 3] = nx;
+					normals[edgeCount * 3 + 1] = ny;
+					normals[edgeCount * 3 + 2] = nz;
+					edgeCount++;
+				} else {
+					final int edge = slotEdges[slot];
+					final double dot = nx * normals[edge * 3] + ny * normals[edge * 3 + 1]
+							+ nz * normals[edge * 3 + 2];
+					inner[edge] = dot >= COPLANAR_DOT;
+				}
+			}
+		}
+
+		final int[] remap = new int[vertexIndex.size()];
+		Arrays.fill(remap, -1);
+		final int[] kept = new int[edgeCount * 2];
+		final double[] keptVertices = new double[vertexIndex.size() * 3];
+		int keptEdges = 0;
+		int keptVertexCount = 0;
+
+		for (int edge = 0; edge < edgeCount; edge++) {
+			if (inner[edge]) {
+				continue;
+			}
+
+			for (int i = 0; i < 2; i++) {
+				final int vertex = ends[edge * 2 + i];
+				if (remap[vertex] < 0) {
+					remap[vertex] = keptVertexCount;
+					System.arraycopy(vertexIndex.coordinates, vertex * 3, keptVertices, keptVertexCount * 3, 3);
+					keptVertexCount++;
+				}
+				kept[keptEdges * 2 + i] = remap[vertex];
+			}
+			keptEdges++;
+		}
+
+		this.edges = Arrays.copyOf(kept, keptEdges * 2);
+		this.vertices = Arrays.copyOf(keptVertices, keptVertexCount * 3);
+	}
+
+	/**
+	 * Retrieves the edges of the given hull, extracting them if they have not
+	 * been cached yet.
+	 *
+	 * @param region
+	 *            Convex region to get the edges of.
+	 * @return Returns the edges of the hull.
+	 */
+	public static HullEdges of(final ConvexPolyhedralRegion region) {
+		final Collection<Triangle> triangles = region.getTriangles();
+		final double[] coordinates = new double[triangles.size() * 9];
+		int i = 0;
+
+		for (final Triangle triangle : triangles) {
+			for (int j = 0; j < 3; j++) {
+				final Vector vertex = triangle.getVertex(j);
+				coordinates[i++] = vertex.getX();
+				coordinates[i++] = vertex.getY();
+				coordinates[i++] = vertex.getZ();
+			}
+		}
+
+		final Key key = new Key(coordinates);
+		synchronized (HULLS) {
+			final HullEdges hull = HULLS.get(key);
+			if (hull != null) {
+				return hull;
+			}
+		}
+
+		final HullEdges hull = new HullEdges(coordinates);
+
+		synchronized (HULLS) {
+			final HullEdges previous = HULLS.put(key, hull);
+			cachedEdges += hull.getEdgeCount() - (previous == null ? 0 : previous.getEdgeCount());
+
+			final Iterator<HullEdges> iterator = HULLS.values().iterator();
+			while (cachedEdges > MAX_CACHED_EDGES && iterator.hasNext()) {
+				final HullEdges eldest = iterator.next();
+
+				if (eldest != hull) {
+					cachedEdges -= eldest.getEdgeCount();
+					iterator.remove();
+				}
+			}
+		}
+		return hull;
+	}
+
+	private static int mix(final long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 29;
+		return (int) (h ^ h >>> 32);
+	}
+
+	public int getEdgeCount() {
+		return this.edges.length / 2;
+	}
+
+	public int getVertexCount() {
+		return this.vertices.length / 3;
+	}
+
+	/**
+	 * Retrieves the index of one end of an edge.
+	 *
+	 * @param edge
+	 *            Index of the edge.
+	 * @param end
+	 *            0 for the first end, 1 for the second one.
+	 * @return Returns the index of the vertex, see {@link #getX(int)}.
+	 */
+	public int getVertex(final int edge, final int end) {
+		return this.edges[edge * 2 + end];
+	}
+
+	public double getX(final int vertex) {
+		return this.vertices[vertex * 3];
+	}
+
+	public double getY(final int vertex) {
+		return this.vertices[vertex * 3 + 1];
+	}
+
+	public double getZ(final int vertex) {
+		return this.vertices[vertex * 3 + 2];
+	}
+
+	/**
+	 * Assigns consecutive indices to distinct vertices using an open
+	 * addressing table of indices.
+	 */
+	private static final class VertexIndex {
+
+		private final int[] table;
+		private final double[] coordinates;
+		private int size;
+
+		private VertexIndex(final int maxVertices) {
+			this.table = new int[Integer.highestOneBit(Math.max(maxVertices, 1)) << 2];
+			this.coordinates = new double[maxVertices * 3];
+		}
+
+		private int indexOf(final double x, final double y, final double z) {
+			final int mask = this.table.length - 1;
+			int slot = mix(Double.doubleToLongBits(x) * 31 * 31 + Double.doubleToLongBits(y) * 31
+					+ Double.doubleToLongBits(z)) & mask;
+
+			while (this.table[slot] != 0) {
+				final int vertex = this.table[slot] - 1;
+				if (this.coordinates[vertex * 3] == x && this.coordinates[vertex * 3 + 1] == y
+						&& this.coordinates[vertex * 3 + 2] == z) {
+					return vertex;
+				}
+				slot = slot + 1 & mask;
+			}
+
+			this.coordinates[this.size * 3] = x;
+			this.coordinates[this.size * 3 + 1] = y;
+			this.coordinates[this.size * 3 + 2] = z;
+			this.table[slot] = ++this.size;
+			return this.size - 1;
+		}
+
+		private int size() {
+			return this.size;
+		}
+	}
+
+	/**
+	 * Cache key comparing the triangle coordinates of a hull.
+	 */
+	private static final class Key {
+
+		private final double[] coordinates;
+		private final int hash;
+
+		private Key(final double[] coordinates) {
+			this.coordinates = coordinates;
+			this.hash = Arrays.hashCode(coordinates);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Key && this.hash == ((Key) obj).hash
+					&& Arrays.equals(this.coordinates, ((Key) obj).coordinates);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
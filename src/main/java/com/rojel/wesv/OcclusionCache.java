@@ -0,0 +1,400 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Masks of the points of shown selections that are embedded in occluding
+ * blocks, where no client can see them.
+ *
+ * A mask is computed per sealed point buffer from {@link ChunkSnapshot}s.
+ * The snapshots of the chunks a selection touches are taken on the server
+ * thread, a few per pass, and the points are tested against them on the
+ * shape worker threads. A point on a face, edge or corner of a block only
+ * counts as embedded if every block it touches is occluding.
+ *
+ * A block change noticed in a chunk section a selection touches, loading one
+ * of its chunks or a WorldEdit edit in its world invalidates its mask. Masks
+ * are also refreshed periodically, to catch changes no event reports. The
+ * outdated mask keeps being used until its replacement is ready.
+ *
+ * All methods have to be called from the server thread.
+ */
+public class OcclusionCache {
+
+	/**
+	 * Maximum number of chunk snapshots taken per pass for all selections
+	 * together, so large selections do not stall a tick.
+	 */
+	private static final int MAX_SNAPSHOTS_PER_PASS = 8;
+
+	private final WorldEditSelectionVisualizer plugin;
+	private final ShapeWorkerPool workerPool;
+
+	/**
+	 * Mask of every point buffer used in the current or previous pass.
+	 */
+	private final Map<PointBuffer, Entry> entries = new IdentityHashMap<>();
+
+	private int pass;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param plugin
+	 *            WESV plugin instance.
+	 * @param workerPool
+	 *            Worker pool the masks are computed on.
+	 */
+	public OcclusionCache(final WorldEditSelectionVisualizer plugin, final ShapeWorkerPool workerPool) {
+		this.plugin = plugin;
+		this.workerPool = workerPool;
+	}
+
+	/**
+	 * Retrieves the mask of the given buffer and starts computing it if it is
+	 * missing or outdated.
+	 *
+	 * @param points
+	 *            Sealed buffer shown to a player.
+	 * @return Returns a bit set with a bit for every embedded point, null if
+	 *         none is known yet.
+	 */
+	public long[] getOccluded(final PointBuffer points) {
+		Entry entry = this.entries.get(points);
+
+		if (entry == null) {
+			entry = new Entry(points);
+			this.entries.put(points, entry);
+		}
+
+		entry.lastPass = this.pass;
+		return entry.occluded;
+	}
+
+	/**
+	 * Drops the masks of buffers not shown in the previous pass and takes the
+	 * next snapshots of outdated masks. Has to be called once per render
+	 * pass.
+	 *
+	 * @param tick
+	 *            Current tick of the render task.
+	 * @param refreshInterval
+	 *            Ticks after which a mask is computed again anyway, 0 to only
+	 *            compute it again after a change.
+	 */
+	public void update(final long tick, final int refreshInterval) {
+		int snapshotBudget = MAX_SNAPSHOTS_PER_PASS;
+		final Iterator<Entry> iterator = this.entries.values().iterator();
+
+		while (iterator.hasNext()) {
+			final Entry entry = iterator.next();
+
+			if (entry.lastPass < this.pass) {
+				iterator.remove();
+				continue;
+			}
+
+			if (!entry.dirty && !entry.computing && refreshInterval > 0
+					&& tick - entry.snapshotTick >= refreshInterval) {
+				entry.dirty = true;
+			}
+
+			if (!entry.dirty || entry.computing) {
+				continue;
+			}
+
+			if (entry.snapshots == null) {
+				entry.snapshots = new ChunkSnapshot[entry.chunks.length];
+				entry.gathered = 0;
+				entry.snapshotTick = tick;
+				entry.changedWhileGathering = false;
+			}
+
+			while (entry.gathered < entry.chunks.length && snapshotBudget > 0) {
+				final int chunkX = (int) (entry.chunks[entry.gathered] >> 32);
+				final int chunkZ = (int) entry.chunks[entry.gathered];
+
+				// unloaded chunks would be loaded by taking a snapshot, their points are kept
+				if (entry.world.isChunkLoaded(chunkX, chunkZ)) {
+					entry.snapshots[entry.gathered] = entry.world.getChunkAt(chunkX, chunkZ).getChunkSnapshot();
+					snapshotBudget--;
+				}
+				entry.gathered++;
+			}
+
+			if (entry.gathered == entry.chunks.length) {
+				this.compute(entry);
+			}
+		}
+		this.pass++;
+	}
+
+	private void compute(final Entry entry) {
+		final ChunkSnapshot[] snapshots = entry.snapshots;
+		final int maxHeight = entry.world.getMaxHeight();
+
+		// a change noticed after some snapshots were taken may have been missed by them
+		entry.snapshots = null;
+		entry.dirty = entry.changedWhileGathering;
+		entry.computing = true;
+
+		try {
+			this.workerPool.submit(() -> this.computeMask(entry, snapshots, maxHeight));
+		} catch (final RejectedExecutionException e) {
+			// the worker queue is full, the snapshots are kept and the mask is computed in a later pass
+			entry.snapshots = snapshots;
+			entry.dirty = true;
+			entry.computing = false;
+		}
+	}
+
+	/**
+	 * Computes the mask of an entry on a worker thread and publishes it on the
+	 * server thread.
+	 */
+	private void computeMask(final Entry entry, final ChunkSnapshot[] snapshots, final int maxHeight) {
+		long[] occluded = null;
+		try {
+			occluded = findOccluded(entry.points, entry.chunks, snapshots, maxHeight);
+		} catch (final RuntimeException e) {
+			this.plugin.getLogger().log(Level.WARNING, "An error occured while computing an occlusion mask", e);
+		}
+
+		final long[] result = occluded;
+		if (this.plugin.isEnabled()) {
+			this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+				entry.computing = false;
+				if (result != null) {
+					entry.occluded = result;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Invalidates the masks of selections touching the chunk section of a
+	 * changed block.
+	 *
+	 * @param world
+	 *            World of the block.
+	 * @param x
+	 *            X coordinate of the block.
+	 * @param y
+	 *            Y coordinate of the block.
+	 * @param z
+	 *            Z coordinate of the block.
+	 */
+	public void invalidateBlock(final World world, final int x, final int y, final int z) {
+		final long section = sectionKey(x >> 4, y >> 4, z >> 4);
+
+		for (final Entry entry : this.entries.values()) {
+			if (entry.world.equals(world) && Arrays.binarySearch(entry.sections, section) >= 0) {
+				entry.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the masks of selections touching a chunk that has just been
+	 * loaded.
+	 *
+	 * @param world
+	 *            World of the chunk.
+	 * @param chunkX
+	 *            X coordinate of the chunk.
+	 * @param chunkZ
+	 *            Z coordinate of the chunk.
+	 */
+	public void invalidateChunk(final World world, final int chunkX, final int chunkZ) {
+		final long chunk = chunkKey(chunkX, chunkZ);
+
+		for (final Entry entry : this.entries.values()) {
+			if (entry.world.equals(world) && Arrays.binarySearch(entry.chunks, chunk) >= 0) {
+				entry.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the masks of all selections in a world, for changes whose
+	 * extent is not known.
+	 *
+	 * @param world
+	 *            World that has been changed.
+	 */
+	public void invalidateWorld(final World world) {
+		for (final Entry entry : this.entries.values()) {
+			if (entry.world.equals(world)) {
+				entry.invalidate();
+			}
+		}
+	}
+
+	/**
+	 * Drops all masks, computations still running are discarded.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Tests every point that is not a duplicate against the snapshots.
+	 */
+	private static long[] findOccluded(final PointBuffer points, final long[] chunks,
+			final ChunkSnapshot[] snapshots, final int maxHeight) {
+		final long[] occluded = new long[(points.size() + 63) >>> 6];
+
+		for (int i = 0; i < points.size(); i++) {
+			if (!points.isDuplicate(i) && isEmbedded(points.getX(i), points.getY(i), points.getZ(i), chunks,
+					snapshots, maxHeight)) {
+				occluded[i >>> 6] |= 1L << i;
+			}
+		}
+		return occluded;
+	}
+
+	/**
+	 * Checks whether all blocks touching a point are occluding. A coordinate
+	 * on a block boundary touches the blocks on both sides.
+	 */
+	private static boolean isEmbedded(final double x, final double y, final double z, final long[] chunks,
+			final ChunkSnapshot[] snapshots, final int maxHeight) {
+		final int toX = (int) Math.floor(x);
+		final int toY = (int) Math.floor(y);
+		final int toZ = (int) Math.floor(z);
+		final int fromY = toY == y ? toY - 1 : toY;
+
+		if (fromY < 0 || toY >= maxHeight) {
+			return false;
+		}
+
+		for (int blockX = toX == x ? toX - 1 : toX; blockX <= toX; blockX++) {
+			for (int blockZ = toZ == z ? toZ - 1 : toZ; blockZ <= toZ; blockZ++) {
+				final int chunk = Arrays.binarySearch(chunks, chunkKey(blockX >> 4, blockZ >> 4));
+				final ChunkSnapshot snapshot = chunk < 0 ? null : snapshots[chunk];
+
+				if (snapshot == null) {
+					return false;
+				}
+
+				for (int blockY = fromY; blockY <= toY; blockY++) {
+					final Material type = snapshot.getBlockType(blockX & 15, blockY, blockZ & 15);
+					if (type == null || !type.isOccluding()) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long chunkKey(final int chunkX, final int chunkZ) {
+		return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+	}
+
+	private static long sectionKey(final int chunkX, final int sectionY, final int chunkZ) {
+		return ((long) chunkX & 0x3FFFFF) << 42 | ((long) sectionY & 0xFFFFF) << 22 | (long) chunkZ & 0x3FFFFF;
+	}
+
+	/**
+	 * Mask of a single point buffer and the chunks and chunk sections its
+	 * points touch, sorted for binary searches.
+	 */
+	private static final class Entry {
+
+		private final PointBuffer points;
+		private final World world;
+		private final long[] chunks;
+		private final long[] sections;
+
+		private long[] occluded;
+		private boolean dirty = true;
+		private boolean computing;
+		private int lastPass;
+
+		/**
+		 * Snapshots taken so far while the mask is outdated, by index of their
+		 * chunk.
+		 */
+		private ChunkSnapshot[] snapshots;
+		private int gathered;
+
+		/**
+		 * Tick the latest snapshots started being taken in.
+		 */
+		private long snapshotTick;
+		private boolean changedWhileGathering;
+
+		private Entry(final PointBuffer points) {
+			this.points = points;
+			this.world = points.getWorld();
+
+			long[] sectionKeys = new long[64];
+			long[] chunkKeys = new long[64];
+			int sectionCount = 0;
+			int chunkCount = 0;
+
+			// segments are at most a few blocks long, so their bounding boxes barely touch extra sections
+			for (int segment = 0; segment < points.getSegmentCount(); segment++) {
+				final int fromX = (int) Math.ceil(points.getSegmentMinX(segment)) - 1 >> 4;
+				final int fromY = (int) Math.ceil(points.getSegmentMinY(segment)) - 1 >> 4;
+				final int fromZ = (int) Math.ceil(points.getSegmentMinZ(segment)) - 1 >> 4;
+				final int toX = (int) Math.floor(points.getSegmentMaxX(segment)) >> 4;
+				final int toY = (int) Math.floor(points.getSegmentMaxY(segment)) >> 4;
+				final int toZ = (int) Math.floor(points.getSegmentMaxZ(segment)) >> 4;
+
+				for (int chunkX = fromX; chunkX <= toX; chunkX++) {
+					for (int chunkZ = fromZ; chunkZ <= toZ; chunkZ++) {
+						if (chunkCount == chunkKeys.length) {
+							chunkKeys = Arrays.copyOf(chunkKeys, chunkCount * 2);
+						}
+						chunkKeys[chunkCount++] = chunkKey(chunkX, chunkZ);
+
+						for (int sectionY = fromY; sectionY <= toY; sectionY++) {
+							if (sectionCount == sectionKeys.length) {
+								sectionKeys = Arrays.copyOf(sectionKeys, sectionCount * 2);
+							}
+							sectionKeys[sectionCount++] = sectionKey(chunkX, sectionY, chunkZ);
+						}
+					}
+				}
+			}
+
+			this.chunks = distinct(chunkKeys, chunkCount);
+			this.sections = distinct(sectionKeys, sectionCount);
+		}
+
+		private static long[] distinct(final long[] keys, final int count) {
+			Arrays.sort(keys, 0, count);
+			int distinct = 0;
+
+			for (int i = 0; i < count; i++) {
+				if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+					keys[distinct++] = keys[i];
+				}
+			}
+			return Arrays.copyOf(keys, distinct);
+		}
+
+		/**
+		 * Marks the mask as outdated. Snapshots already being taken are kept,
+		 * so frequent changes cannot keep the mask from ever being computed,
+		 * but the mask is computed once more afterwards.
+		 */
+		private void invalidate() {
+			this.dirty = true;
+			if (this.snapshots != null) {
+				this.changedWhileGathering = true;
+			}
+		}
+	}
+}
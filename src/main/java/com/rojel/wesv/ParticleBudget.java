@@ -0,0 +1,145 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+
+/**
+ * Particles per tick shared between the players with pending particles.
+ *
+ * The budget of a tick, plus what was left unused in the previous tick, is
+ * dealt out in rounds of weighted round-robin: every player still waiting
+ * gets a share of the remaining budget by its weight, and what players with
+ * fewer pending particles leave over goes to the players after them and to
+ * the next round. Particles that do not fit stay pending for the next tick.
+ */
+public final class ParticleBudget {
+
+	/**
+	 * Players with pending particles in the current tick, with their emitter,
+	 * visible set, number of pending particles and weight.
+	 */
+	private ParticleEmitter[] emitters = new ParticleEmitter[16];
+	private VisibleSet[] visibleSets = new VisibleSet[16];
+	private int[] pending = new int[16];
+	private int[] weights = new int[16];
+	private int count;
+
+	/**
+	 * Player served first in the next tick, so the players take turns in
+	 * getting rounding leftovers.
+	 */
+	private int nextActive;
+
+	/**
+	 * Particles per tick left unused in the previous tick.
+	 */
+	private int carried;
+
+	/**
+	 * Adds a player to the players served in the current tick, unless it has
+	 * no pending particles.
+	 *
+	 * @param emitter
+	 *            Emitter spawning the particles for the player.
+	 * @param visibleSet
+	 *            Visible set of the player with its due slices set.
+	 * @param weight
+	 *            Weight of the player, at least 1.
+	 */
+	public void add(final ParticleEmitter emitter, final VisibleSet visibleSet, final int weight) {
+		final int pending = visibleSet.getPending();
+		if (pending == 0) {
+			return;
+		}
+
+		if (this.count == this.emitters.length) {
+			final int length = this.count * 2;
+			this.emitters = Arrays.copyOf(this.emitters, length);
+			this.visibleSets = Arrays.copyOf(this.visibleSets, length);
+			this.pending = Arrays.copyOf(this.pending, length);
+			this.weights = Arrays.copyOf(this.weights, length);
+		}
+
+		this.emitters[this.count] = emitter;
+		this.visibleSets[this.count] = visibleSet;
+		this.pending[this.count] = pending;
+		this.weights[this.count] = Math.max(1, weight);
+		this.count++;
+	}
+
+	/**
+	 * Sends the pending particles of the added players within the particles
+	 * per tick, then forgets the players.
+	 *
+	 * @param tickBudget
+	 *            Maximum number of particles per tick, 0 for no limit.
+	 * @return Returns the number of particles sent.
+	 */
+	public int send(final int tickBudget) {
+		final int count = this.count;
+		int total = 0;
+
+		if (tickBudget <= 0) {
+			for (int i = 0; i < count; i++) {
+				total += this.visibleSets[i].send(this.emitters[i], Integer.MAX_VALUE);
+			}
+			this.carried = 0;
+		} else {
+			final int first = count == 0 ? 0 : this.nextActive % count;
+			int available = tickBudget + this.carried;
+			long waitingWeight = 0;
+
+			for (int i = 0; i < count; i++) {
+				waitingWeight += this.weights[i];
+			}
+
+			while (available > 0 && waitingWeight > 0) {
+				// the weight of the players not yet served in this round, each gets its part of what is left
+				long roundWeight = waitingWeight;
+				int roundSent = 0;
+
+				for (int n = 0; n < count && available > 0; n++) {
+					final int i = (first + n) % count;
+					if (this.pending[i] == 0) {
+						continue;
+					}
+
+					final int share = (int) Math.max(1, (long) available * this.weights[i] / roundWeight);
+					final int sent = this.visibleSets[i].send(this.emitters[i], Math.min(share, available));
+
+					roundWeight -= this.weights[i];
+					available -= sent;
+					roundSent += sent;
+					this.pending[i] = this.visibleSets[i].getPending();
+
+					if (this.pending[i] == 0) {
+						waitingWeight -= this.weights[i];
+					}
+				}
+
+				total += roundSent;
+				if (roundSent == 0) {
+					break;
+				}
+			}
+
+			// at most one tick worth of budget is carried, so idle ticks do not add up to a burst
+			this.carried = Math.min(available, tickBudget);
+			this.nextActive = count == 0 ? 0 : (first + 1) % count;
+		}
+
+		Arrays.fill(this.emitters, 0, count, null);
+		Arrays.fill(this.visibleSets, 0, count, null);
+		this.count = 0;
+		return total;
+	}
+
+	/**
+	 * Retrieves the number of particles per tick left unused in the previous
+	 * tick.
+	 *
+	 * @return Returns the carried budget.
+	 */
+	public int getCarried() {
+		return this.carried;
+	}
+}
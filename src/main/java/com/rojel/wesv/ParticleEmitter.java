@@ -0,0 +1,20 @@
+package com.rojel.wesv;
+
+/**
+ * Receiver of the particles a {@link VisibleSet} sends, usually spawning them
+ * for a single viewer.
+ */
+public interface ParticleEmitter {
+
+	/**
+	 * Emits a single particle.
+	 *
+	 * @param x
+	 *            X coordinate of the particle.
+	 * @param y
+	 *            Y coordinate of the particle.
+	 * @param z
+	 *            Z coordinate of the particle.
+	 */
+	void emit(double x, double y, double z);
+}
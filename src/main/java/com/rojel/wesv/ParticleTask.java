@@ -4,6 +4,12 @@
 
 package com.rojel.wesv;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import org.bukkit.Location;
@@ -17,30 +23,363 @@ public class ParticleTask extends BukkitRunnable {
 
 	private final WorldEditSelectionVisualizer plugin;
 
+	/**
+	 * View cone of every player in the previous pass. Segments still inside
+	 * the previous cone keep being shown, so turning the camera does not make
+	 * points pop in at the edge of the screen.
+	 */
+	private final Map<UUID, ViewCone> previousCones = new HashMap<>();
+
+	/**
+	 * Chunk clip of every player, kept between passes until it changes.
+	 */
+	private final Map<UUID, ChunkClip> chunkClips = new HashMap<>();
+
+	/**
+	 * Points collected for every player, kept between passes until the player
+	 * moves or turns noticeably or what is shown to them changes.
+	 */
+	private final Map<UUID, VisibleSet> visibleSets = new HashMap<>();
+
+	/**
+	 * Emitter spawning the particles of every player, kept between ticks
+	 * until the player, the particle or its data changes.
+	 */
+	private final Map<UUID, ViewerEmitter> emitters = new HashMap<>();
+
+	/**
+	 * Hash of the settings the visible sets have been collected with.
+	 */
+	private int settings;
+
+	/**
+	 * Tick of every player within the update interval on which its points are
+	 * collected and its first slice is sent, so players with large selections
+	 * do not all peak on the same tick.
+	 */
+	private final Map<UUID, Integer> phases = new HashMap<>();
+
+	private int nextPhase;
+
+	/**
+	 * Number of ticks this task has run.
+	 */
+	private long tick;
+
+	/**
+	 * Players that held the selection item when their points were last
+	 * collected.
+	 */
+	private final Set<UUID> wandHolders = new HashSet<>();
+
+	/**
+	 * Particles per tick shared between the players with pending particles.
+	 */
+	private final ParticleBudget budget = new ParticleBudget();
+
+	/**
+	 * Segments collected for the current viewer, reused between passes.
+	 */
+	private long[] candidates = new long[256];
+
+	/**
+	 * Indices of the points of the current segment in range of the viewer.
+	 */
+	private final int[] visible = new int[PointBuffer.MAX_SEGMENT_POINTS + 1];
+
+	/**
+	 * Particles that may still be added to the visible set being collected.
+	 */
+	private int remaining;
+
 	public ParticleTask(final WorldEditSelectionVisualizer plugin) {
 		super();
 
 		this.plugin = plugin;
 
-		runTaskTimer(this.plugin, 1, plugin.getCustomConfig().getUpdateParticlesInterval());
+		runTaskTimer(this.plugin, 1, 1);
 	}
 
 	@Override
 	public void run() {
+		final int interval = Math.max(1, plugin.getCustomConfig().getUpdateParticlesInterval());
+		final int slices = plugin.getCustomConfig().isTimeSlicingEnabled() ? interval : 1;
+		final long tick = this.tick++;
 		final int particleDistance = plugin.getCustomConfig().getParticleDistance();
+		final int lodDistance = plugin.getCustomConfig().getLodDistance();
+		final boolean viewConeCulling = plugin.getCustomConfig().isViewConeCullingEnabled();
+		final int viewConeMargin = plugin.getCustomConfig().getViewConeMargin();
+		final boolean chunkClipping = plugin.getCustomConfig().isChunkClippingEnabled();
+		final boolean occlusionCulling = plugin.getCustomConfig().isOcclusionCullingEnabled();
+		final OcclusionCache occlusion = plugin.getOcclusionCache();
+		final int serverViewDistance = plugin.getServer().getViewDistance();
+		final int viewerBudget = plugin.getCustomConfig().getMaxParticlesPerViewer();
+		final ParticleType particle = plugin.getCustomConfig().getParticle();
+		final Object particleData = plugin.getCustomConfig().getParticleData();
+		final double visibleSetThreshold = plugin.getCustomConfig().getVisibleSetThreshold();
+		final int tickBudget = plugin.getCustomConfig().getMaxParticlesPerTick();
+		final int wandHolderWeight = plugin.getCustomConfig().getWandHolderWeight();
+
+		// the per player state is dropped once per interval, when every player has been updated
+		final boolean passStart = tick % interval == 0;
+		if (passStart) {
+			if (!viewConeCulling) {
+				this.previousCones.clear();
+			} else {
+				this.previousCones.keySet().retainAll(plugin.getPlayerParticleMap().keySet());
+			}
+
+			if (!chunkClipping) {
+				this.chunkClips.clear();
+			} else {
+				this.chunkClips.keySet().retainAll(plugin.getPlayerParticleMap().keySet());
+			}
+
+			final int settings = Objects.hash(particleDistance, lodDistance, viewConeCulling, viewConeMargin,
+					chunkClipping, occlusionCulling, viewerBudget);
+			if (settings != this.settings) {
+				this.visibleSets.clear();
+				this.settings = settings;
+			} else {
+				this.visibleSets.keySet().retainAll(plugin.getPlayerParticleMap().keySet());
+			}
+
+			this.emitters.keySet().retainAll(plugin.getPlayerParticleMap().keySet());
+			this.wandHolders.retainAll(plugin.getPlayerParticleMap().keySet());
+
+			if (slices > 1) {
+				this.phases.keySet().retainAll(plugin.getPlayerParticleMap().keySet());
+			} else {
+				this.phases.clear();
+			}
+		}
+
 		for (final UUID uuid : plugin.getPlayerParticleMap().keySet()) {
+			final int phase = slices > 1 ? this.phases.computeIfAbsent(uuid, id -> this.nextPhase++) : 0;
+			final int step = (int) Math.floorMod(tick - phase, (long) interval);
 			final Player player = ParticleTask.this.plugin.getServer().getPlayer(uuid);
-			for (final Location loc : plugin.getPlayerParticleMap().get(uuid)) {
-				if (!loc.getWorld().equals(player.getLocation().getWorld())
-						|| loc.distanceSquared(player.getLocation()) > particleDistance * particleDistance) {
+			final VisibleSet visibleSet = this.visibleSets.computeIfAbsent(uuid, id -> new VisibleSet());
+
+			// the points are only collected on the first tick of the interval of the player
+			if (step == 0) {
+				if (plugin.isHoldingSelectionItem(player)) {
+					this.wandHolders.add(uuid);
+				} else {
+					this.wandHolders.remove(uuid);
+				}
+
+				final PointBuffer shown = plugin.getPlayerParticleMap().get(uuid);
+				final Location playerLoc = player.getLocation();
+
+				if (!shown.getWorld().equals(playerLoc.getWorld())) {
+					visibleSet.invalidate();
 					continue;
 				}
 
-				final ParticleType particle = plugin.getCustomConfig().getParticle();
-				final Object particleData = plugin.getCustomConfig().getParticleData();
-				
-				FastParticle.spawnParticle(player, particle, loc, 1, 0.0, 0.0, 0.0, 0.0, particleData);
+				final double playerX = playerLoc.getX();
+				final double playerY = playerLoc.getY();
+				final double playerZ = playerLoc.getZ();
+				final PointBuffer points = shown.hasSimplified() ? shown.getSimplified(DetailLevel.of(
+						shown.getSegmentGrid().getDistanceSquared(playerX, playerY, playerZ), lodDistance)) : shown;
+				final long[] occluded = occlusionCulling && points.size() > 0 ? occlusion.getOccluded(points)
+						: null;
+				final ChunkClip clip = chunkClipping
+						? this.chunkClips.computeIfAbsent(uuid, id -> new ChunkClip())
+						: null;
+
+				if (clip != null && clip.update(playerLoc, points.getSegmentGrid(),
+						ChunkClip.getEffectiveViewDistance(player, serverViewDistance))) {
+					visibleSet.invalidate();
+				}
+
+				// turning within half the margin keeps the screen inside of the cone the points were collected in
+				final double maxTurn = viewConeCulling ? viewConeMargin / 2.0 : 360.0;
+				if (!visibleSet.isCurrent(points, occluded, playerX, playerY, playerZ, playerLoc.getYaw(),
+						playerLoc.getPitch(), visibleSetThreshold, maxTurn)) {
+					final ViewCone cone = viewConeCulling ? new ViewCone(player.getEyeLocation(), viewConeMargin)
+							: null;
+					visibleSet.reset(points, occluded, playerX, playerY, playerZ, playerLoc.getYaw(),
+							playerLoc.getPitch());
+					this.collect(visibleSet, player, points, occluded, clip, particleDistance, lodDistance, cone,
+							viewerBudget);
+				}
+
+				// whatever is left of the previous interval is outdated
+				visibleSet.rewind();
+			}
+
+			visibleSet.due(Math.min(step, slices - 1), slices);
+			ViewerEmitter emitter = this.emitters.get(uuid);
+			if (emitter == null || !emitter.isFor(player, particle, particleData)) {
+				emitter = new ViewerEmitter(player, particle, particleData);
+				this.emitters.put(uuid, emitter);
 			}
+
+			this.budget.add(emitter, visibleSet, this.wandHolders.contains(uuid) ? wandHolderWeight : 1);
+		}
+
+		this.budget.send(tickBudget);
+
+		if (!passStart) {
+			return;
+		}
+
+		if (occlusionCulling) {
+			occlusion.update(tick, plugin.getCustomConfig().getOcclusionRefreshInterval());
+		} else {
+			occlusion.clear();
+		}
+	}
+
+	/**
+	 * Collects the points a viewer should be sent into its visible set:
+	 * segments in budget order, culled to the range of the viewer, followed
+	 * by the part of the wireframe in range.
+	 */
+	private void collect(final VisibleSet visibleSet, final Player player, final PointBuffer points,
+			final long[] occluded, final ChunkClip clip, final int particleDistance, final int lodDistance,
+			final ViewCone cone, final int viewerBudget) {
+		final double maxDistanceSquared = particleDistance * particleDistance;
+		final double playerX = visibleSet.getAnchorX();
+		final double playerY = visibleSet.getAnchorY();
+		final double playerZ = visibleSet.getAnchorZ();
+		final ViewCone previousCone = cone != null ? this.previousCones.put(player.getUniqueId(), cone) : null;
+		final int candidates = this.collectSegments(points, playerX, playerY, playerZ, maxDistanceSquared,
+				lodDistance, cone, previousCone, clip);
+
+		if (viewerBudget > 0) {
+			Arrays.sort(this.candidates, 0, candidates);
+		}
+
+		this.remaining = viewerBudget > 0 ? viewerBudget : Integer.MAX_VALUE;
+
+		for (int i = 0; i < candidates && this.remaining > 0; i++) {
+			final int segment = (int) this.candidates[i];
+			final double nearest = points.getSegmentDistanceSquared(segment, playerX, playerY, playerZ);
+			final boolean inside = points.getSegmentMaxDistanceSquared(segment, playerX, playerY,
+					playerZ) <= maxDistanceSquared;
+			final int stride = DetailLevel.stride(DetailLevel.of(nearest, lodDistance));
+			final int start = points.getSegmentStart(segment);
+			final int end = points.getSegmentEnd(segment);
+
+			// a whole segment in range only needs its stride applied, all others go through the kernel
+			final double cullDistanceSquared = inside ? Double.POSITIVE_INFINITY : maxDistanceSquared;
+			int visible = points.cull(start, end, stride, playerX, playerY, playerZ, cullDistanceSquared,
+					this.visible, 0);
+
+			if (stride > 1 && (end - 1 - start) % stride != 0) {
+				visible = points.cull(end - 1, end, 1, playerX, playerY, playerZ, cullDistanceSquared,
+						this.visible, visible);
+			}
+
+			for (int j = 0; j < visible && this.remaining > 0; j++) {
+				this.add(visibleSet, points, occluded, this.visible[j]);
+			}
+		}
+
+		final Wireframe wireframe = points.getWireframe();
+		if (wireframe != null && this.remaining > 0) {
+			// wireframes are not clipped per chunk, only to the view distance in blocks
+			final int distance = clip == null ? particleDistance
+					: Math.min(particleDistance, (clip.getViewDistance() + 1) * 16);
+			final PointCursor cursor = wireframe.cursor(playerX, playerY, playerZ, distance, lodDistance, cone,
+					previousCone);
+
+			while (this.remaining > 0 && cursor.next()) {
+				visibleSet.addWireframePoint(cursor.getX(), cursor.getY(), cursor.getZ());
+				this.remaining--;
+			}
+		}
+	}
+
+	/**
+	 * Collects the segments a viewer should be sent into {@link #candidates},
+	 * skipping those out of range, in cells the client does not display,
+	 * outside of the view cone or dropped by their level of detail.
+	 *
+	 * Every candidate is stored as its priority tier, its distance in 1/16
+	 * blocks and its index packed into a long, so sorting the candidates
+	 * orders them by tier first and nearest first within a tier.
+	 *
+	 * @return Returns the number of candidates.
+	 */
+	private int collectSegments(final PointBuffer points, final double playerX, final double playerY,
+			final double playerZ, final double maxDistanceSquared, final int lodDistance, final ViewCone cone,
+			final ViewCone previousCone, final ChunkClip clip) {
+		final SegmentGrid grid = points.getSegmentGrid();
+		int count = 0;
+
+		for (int cell = 0; cell < grid.getCellCount(); cell++) {
+			if (grid.getCellDistanceSquared(cell, playerX, playerY, playerZ) > maxDistanceSquared
+					|| clip != null && !clip.isCellShown(cell)) {
+				continue;
+			}
+
+			for (int position = grid.getCellStart(cell); position < grid.getCellEnd(cell); position++) {
+				final int segment = grid.getSegment(position);
+				final double nearest = points.getSegmentDistanceSquared(segment, playerX, playerY, playerZ);
+
+				if (nearest > maxDistanceSquared) {
+					continue;
+				}
+
+				final int level = DetailLevel.of(nearest, lodDistance);
+				if (level == DetailLevel.OUTLINE_ONLY && points.isFillSegment(segment)) {
+					continue;
+				}
+
+				if (cone != null && !cone.intersectsSegment(points, segment)
+						&& (previousCone == null || !previousCone.intersectsSegment(points, segment))) {
+					continue;
+				}
+
+				if (count == this.candidates.length) {
+					this.candidates = Arrays.copyOf(this.candidates, count * 2);
+				}
+
+				final long distance = Math.min((long) (Math.sqrt(nearest) * 16.0), 0xFFFFFFL);
+				this.candidates[count++] = (long) points.getSegmentTier(segment) << 56 | distance << 32 | segment;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds a single point in range to a visible set unless it is a duplicate
+	 * or embedded in occluding blocks.
+	 */
+	private void add(final VisibleSet visibleSet, final PointBuffer points, final long[] occluded, final int i) {
+		if (points.isDuplicate(i) || occluded != null && (occluded[i >>> 6] & 1L << i) != 0) {
+			return;
+		}
+
+		visibleSet.addPoint(i);
+		this.remaining--;
+	}
+
+	/**
+	 * Emitter spawning particles for a single player.
+	 */
+	private static final class ViewerEmitter implements ParticleEmitter {
+
+		private final Player player;
+		private final ParticleType particle;
+		private final Object particleData;
+
+		private ViewerEmitter(final Player player, final ParticleType particle, final Object particleData) {
+			this.player = player;
+			this.particle = particle;
+			this.particleData = particleData;
+		}
+
+		private boolean isFor(final Player player, final ParticleType particle, final Object particleData) {
+			return this.player == player && this.particle == particle
+					&& Objects.equals(this.particleData, particleData);
+		}
+
+		@Override
+		public void emit(final double x, final double y, final double z) {
+			FastParticle.spawnParticle(this.player, this.particle, x, y, z, 1, 0.0, 0.0, 0.0, 0.0, this.particleData);
 		}
 	}
 }
@@ -0,0 +1,72 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+
+/**
+ * Identifies an independently plotted piece of a selection, such as one side
+ * of a cuboid or polygon together with its horizontal lines, or one ring of a
+ * cylinder or ellipsoid.
+ *
+ * A piece only depends on its key, so when a selection is modified the pieces
+ * whose keys did not change can be copied from the previously plotted buffer
+ * instead of being plotted again.
+ */
+public final class PieceKey {
+
+	/**
+	 * Kind of a plotted piece.
+	 */
+	public enum Kind {
+		/**
+		 * Side of a prism: bottom and top edge, vertical edge at its first
+		 * corner and optional horizontal lines.
+		 */
+		SIDE,
+		/**
+		 * Axis aligned ellipse.
+		 */
+		ELLIPSE
+	}
+
+	private final PlotSettings settings;
+	private final Kind kind;
+	private final double[] values;
+	private final int hash;
+
+	/**
+	 * Creates a new piece key.
+	 *
+	 * @param settings
+	 *            Settings the piece is plotted with.
+	 * @param kind
+	 *            Kind of the piece.
+	 * @param values
+	 *            Every value the plotted points of the piece depend on.
+	 */
+	public PieceKey(final PlotSettings settings, final Kind kind, final double... values) {
+		this.settings = settings;
+		this.kind = kind;
+		this.values = values;
+		this.hash = 31 * (31 * settings.hashCode() + kind.hashCode()) + Arrays.hashCode(values);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof PieceKey)) {
+			return false;
+		}
+
+		final PieceKey other = (PieceKey) obj;
+		return this.hash == other.hash && this.kind == other.kind && Arrays.equals(this.values, other.values)
+				&& this.settings.equals(other.settings);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+}
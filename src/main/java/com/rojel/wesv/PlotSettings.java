@@ -0,0 +1,140 @@
+package com.rojel.wesv;
+
+/**
+ * Immutable snapshot of the configuration values that influence the geometry
+ * plotted by {@link ShapeHelper}.
+ *
+ * Two selections plotted with equal settings produce equal points, which
+ * makes this class part of the {@link GeometryCache} key.
+ */
+public final class PlotSettings {
+
+	private final double gapBetweenPoints;
+	private final double verticalGap;
+	private final boolean cuboidLines;
+	private final boolean polygonLines;
+	private final boolean cylinderLines;
+	private final boolean ellipsoidLines;
+	private final boolean wireframe;
+
+	/**
+	 * Takes a snapshot of the plotting related values of the given
+	 * configuration.
+	 *
+	 * @param config
+	 *            Configuration to read the values from.
+	 */
+	public PlotSettings(final Configuration config) {
+		this(config, false);
+	}
+
+	/**
+	 * Takes a snapshot of the plotting related values of the given
+	 * configuration.
+	 *
+	 * @param config
+	 *            Configuration to read the values from.
+	 * @param wireframe
+	 *            Whether the selection is described by a {@link Wireframe}
+	 *            instead of plotted points.
+	 */
+	public PlotSettings(final Configuration config, final boolean wireframe) {
+		this(config.getGapBetweenPoints(), config.getVerticalGap(), config.isCuboidLinesEnabled(),
+				config.isPolygonLinesEnabled(), config.isCylinderLinesEnabled(), config.isEllipsoidLinesEnabled(),
+				wireframe);
+	}
+
+	public PlotSettings(final double gapBetweenPoints, final double verticalGap, final boolean cuboidLines,
+			final boolean polygonLines, final boolean cylinderLines, final boolean ellipsoidLines,
+			final boolean wireframe) {
+		this.gapBetweenPoints = gapBetweenPoints;
+		this.verticalGap = verticalGap;
+		this.cuboidLines = cuboidLines;
+		this.polygonLines = polygonLines;
+		this.cylinderLines = cylinderLines;
+		this.ellipsoidLines = ellipsoidLines;
+		this.wireframe = wireframe;
+	}
+
+	/**
+	 * Creates the settings with the same lines but different gaps.
+	 *
+	 * @param gapBetweenPoints
+	 *            Gap between two points of a line.
+	 * @param verticalGap
+	 *            Gap between two horizontal lines or rings.
+	 * @return Returns the changed settings.
+	 */
+	public PlotSettings withGaps(final double gapBetweenPoints, final double verticalGap) {
+		return new PlotSettings(gapBetweenPoints, verticalGap, this.cuboidLines, this.polygonLines,
+				this.cylinderLines, this.ellipsoidLines, this.wireframe);
+	}
+
+	/**
+	 * Creates the settings to describe a selection by a {@link Wireframe}
+	 * with the same gaps and lines.
+	 *
+	 * @return Returns the wireframe settings.
+	 */
+	public PlotSettings toWireframe() {
+		return new PlotSettings(this.gapBetweenPoints, this.verticalGap, this.cuboidLines, this.polygonLines,
+				this.cylinderLines, this.ellipsoidLines, true);
+	}
+
+	public double getGapBetweenPoints() {
+		return this.gapBetweenPoints;
+	}
+
+	public double getVerticalGap() {
+		return this.verticalGap;
+	}
+
+	public boolean isCuboidLinesEnabled() {
+		return this.cuboidLines;
+	}
+
+	public boolean isPolygonLinesEnabled() {
+		return this.polygonLines;
+	}
+
+	public boolean isCylinderLinesEnabled() {
+		return this.cylinderLines;
+	}
+
+	public boolean isEllipsoidLinesEnabled() {
+		return this.ellipsoidLines;
+	}
+
+	public boolean isWireframe() {
+		return this.wireframe;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof PlotSettings)) {
+			return false;
+		}
+
+		final PlotSettings other = (PlotSettings) obj;
+		return Double.compare(this.gapBetweenPoints, other.gapBetweenPoints) == 0
+				&& Double.compare(this.verticalGap, other.verticalGap) == 0 && this.cuboidLines == other.cuboidLines
+				&& this.polygonLines == other.polygonLines && this.cylinderLines == other.cylinderLines
+				&& this.ellipsoidLines == other.ellipsoidLines && this.wireframe == other.wireframe;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Double.hashCode(this.gapBetweenPoints);
+		result = 31 * result + Double.hashCode(this.verticalGap);
+		result = 31 * result + (this.cuboidLines ? 1 : 0);
+		result = 31 * result + (this.polygonLines ? 1 : 0);
+		result = 31 * result + (this.cylinderLines ? 1 : 0);
+		result = 31 * result + (this.ellipsoidLines ? 1 : 0);
+		result = 31 * result + (this.wireframe ? 1 : 0);
+		return result;
+	}
+}
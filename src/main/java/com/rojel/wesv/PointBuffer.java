@@ -0,0 +1,822 @@
+package com.rojel.wesv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.bukkit.World;
+
+/**
+ * Growable buffer of packed x/y/z point coordinates belonging to a single
+ * world.
+ *
+ * Points are stored as consecutive triples in one `double[]`, so plotting a
+ * shape costs one array (re)allocation per growth step instead of one object
+ * per point. Once {@link #seal() sealed} a buffer is immutable and can be
+ * shared between players and threads. Sealing also replaces the doubles by
+ * {@link QuantizedPoints}, as sealed buffers are shown for a long time.
+ *
+ * Ranges of points can be recorded as pieces identified by a
+ * {@link PieceKey}, which lets a later plot copy unchanged pieces instead of
+ * plotting them again.
+ *
+ * Every point also belongs to a segment, a short run of consecutive points of
+ * the same line or ellipse with a priority tier. Segments are split to at
+ * most {@value #MAX_SEGMENT_POINTS} points when the buffer is sealed and get a
+ * bounding box, which lets the renderer pick a level of detail, skip them or
+ * fill a particle budget by tier without looking at single points.
+ */
+public class PointBuffer {
+
+	/**
+	 * Number of points a buffer can hold before it grows for the first time.
+	 */
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Maximum number of points in a segment of a sealed buffer.
+	 */
+	public static final int MAX_SEGMENT_POINTS = 32;
+
+	/**
+	 * Priority tier of corner points, shown before anything else.
+	 */
+	public static final int TIER_CORNER = 0;
+
+	/**
+	 * Priority tier of outline edges and rings.
+	 */
+	public static final int TIER_EDGE = 1;
+
+	/**
+	 * Priority tier of vertical pillars.
+	 */
+	public static final int TIER_PILLAR = 2;
+
+	/**
+	 * Priority tier of decorative fill lines and rings, dropped first.
+	 */
+	public static final int TIER_FILL = 3;
+
+	/**
+	 * Number of priority tiers.
+	 */
+	public static final int TIER_COUNT = 4;
+
+	/**
+	 * World all points of this buffer are located in.
+	 */
+	private final World world;
+
+	/**
+	 * Packed coordinates, `x0, y0, z0, x1, y1, z1, ...`.
+	 */
+	private double[] coords;
+
+	/**
+	 * Quantized coordinates replacing {@link #coords} once the buffer is
+	 * sealed.
+	 */
+	private QuantizedPoints quantized;
+
+	/**
+	 * Number of points currently stored.
+	 */
+	private int size;
+
+	/**
+	 * Index of the first point of every segment.
+	 */
+	private int[] segmentStarts = new int[8];
+
+	/**
+	 * Priority tier of every segment.
+	 */
+	private byte[] segmentTiers = new byte[8];
+
+	/**
+	 * Number of segments.
+	 */
+	private int segmentCount;
+
+	/**
+	 * Bounding box of every segment, `minX, minY, minZ, maxX, maxY, maxZ`,
+	 * computed when the buffer is sealed.
+	 */
+	private double[] segmentBounds;
+
+	/**
+	 * Grid over the segments, built when the buffer is sealed.
+	 */
+	private SegmentGrid segmentGrid;
+
+	/**
+	 * Bit set of the points coinciding with an earlier or higher priority
+	 * point, found when the buffer is sealed, null if there are none.
+	 *
+	 * Duplicates stay stored, so pieces keep all their points and can still
+	 * be copied into later buffers, but they are never sent to players.
+	 */
+	private long[] duplicates;
+
+	private int duplicateCount;
+
+	/**
+	 * Lines and rings sampled for every viewer instead of stored points, may
+	 * be null.
+	 */
+	private Wireframe wireframe;
+
+	/**
+	 * Simplified variants of this buffer by level of detail, null if there
+	 * are none. Levels without a variant of their own use the next finer one.
+	 */
+	private PointBuffer[] simplified;
+
+	/**
+	 * Pieces recorded while plotting, in plotting order.
+	 */
+	private final List<Piece> pieces = new ArrayList<>();
+
+	/**
+	 * Recorded pieces by their key, built when the buffer is sealed.
+	 */
+	private Map<PieceKey, Piece> pieceIndex;
+
+	/**
+	 * Whether this buffer has been made read-only.
+	 */
+	private volatile boolean sealed;
+
+	/**
+	 * Creates an empty buffer for the given world.
+	 *
+	 * @param world
+	 *            World the points will be located in, may be null for an
+	 *            empty shape.
+	 */
+	public PointBuffer(final World world) {
+		this(world, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty buffer for the given world with room for the given
+	 * amount of points.
+	 *
+	 * @param world
+	 *            World the points will be located in, may be null for an
+	 *            empty shape.
+	 * @param capacity
+	 *            Number of points to reserve space for.
+	 */
+	public PointBuffer(final World world, final int capacity) {
+		this.world = world;
+		this.coords = new double[Math.max(capacity, 1) * 3];
+	}
+
+	/**
+	 * Appends a point to the buffer.
+	 *
+	 * @param x
+	 *            X coordinate of the point.
+	 * @param y
+	 *            Y coordinate of the point.
+	 * @param z
+	 *            Z coordinate of the point.
+	 */
+	public void add(final double x, final double y, final double z) {
+		this.ensureCapacity(this.size + 1);
+
+		if (this.segmentCount == 0) {
+			this.appendSegment(this.size, (byte) TIER_EDGE);
+		}
+
+		final int i = this.size * 3;
+		this.coords[i] = x;
+		this.coords[i + 1] = y;
+		this.coords[i + 2] = z;
+		this.size++;
+	}
+
+	/**
+	 * Starts a new segment, all points added from now on belong to it.
+	 *
+	 * @param tier
+	 *            Priority tier of the segment, one of the `TIER_` constants.
+	 */
+	public void beginSegment(final int tier) {
+		this.checkNotSealed();
+		this.appendSegment(this.size, (byte) tier);
+	}
+
+	/**
+	 * Appends a copy of the points in the range `[from, to)` shifted
+	 * vertically by the given offset as a new segment.
+	 *
+	 * @param from
+	 *            Index of the first point to copy.
+	 * @param to
+	 *            Index after the last point to copy.
+	 * @param yOffset
+	 *            Vertical offset added to every copied point.
+	 * @param tier
+	 *            Priority tier of the copy.
+	 */
+	public void addShifted(final int from, final int to, final double yOffset, final int tier) {
+		this.ensureCapacity(this.size + to - from);
+		this.beginSegment(tier);
+
+		int dst = this.size * 3;
+		for (int src = from * 3; src < to * 3; src += 3) {
+			this.coords[dst++] = this.coords[src];
+			this.coords[dst++] = this.coords[src + 1] + yOffset;
+			this.coords[dst++] = this.coords[src + 2];
+		}
+		this.size += to - from;
+	}
+
+	/**
+	 * Appends all points and segments of another buffer, pieces are not
+	 * copied.
+	 *
+	 * @param other
+	 *            Buffer to copy the points from.
+	 */
+	public void addAll(final PointBuffer other) {
+		this.ensureCapacity(this.size + other.size);
+		this.copySegments(other, 0, other.size);
+
+		this.copyCoordinates(other, 0, other.size);
+		this.size += other.size;
+	}
+
+	/**
+	 * Records the points from the given index up to the current end of the
+	 * buffer as a piece.
+	 *
+	 * @param key
+	 *            Key identifying the piece.
+	 * @param from
+	 *            Index of the first point of the piece.
+	 */
+	public void endPiece(final PieceKey key, final int from) {
+		this.checkNotSealed();
+		this.pieces.add(new Piece(key, from, this.size));
+	}
+
+	/**
+	 * Appends the piece with the given key from a previously plotted, sealed
+	 * buffer of the same world.
+	 *
+	 * @param source
+	 *            Buffer to copy the piece from, may be null.
+	 * @param key
+	 *            Key of the piece to copy.
+	 * @return Returns true if the piece has been copied, false if the source
+	 *         buffer does not contain it.
+	 */
+	public boolean copyPiece(final PointBuffer source, final PieceKey key) {
+		if (source == null || source.pieceIndex == null || !Objects.equals(source.world, this.world)) {
+			return false;
+		}
+
+		final Piece piece = source.pieceIndex.get(key);
+		if (piece == null) {
+			return false;
+		}
+
+		final int from = this.size;
+		final int count = piece.to - piece.from;
+		this.ensureCapacity(from + count);
+		this.copySegments(source, piece.from, piece.to);
+
+		this.copyCoordinates(source, piece.from, count);
+		this.size += count;
+		this.pieces.add(new Piece(key, from, this.size));
+		return true;
+	}
+
+	/**
+	 * Copies the coordinates of points of the source buffer behind the
+	 * current end of this buffer, expanding them if the source is sealed.
+	 */
+	private void copyCoordinates(final PointBuffer source, final int from, final int count) {
+		if (source.coords != null) {
+			System.arraycopy(source.coords, from * 3, this.coords, this.size * 3, count * 3);
+			return;
+		}
+
+		int dst = this.size * 3;
+		for (int i = from; i < from + count; i++) {
+			this.coords[dst++] = source.getX(i);
+			this.coords[dst++] = source.getY(i);
+			this.coords[dst++] = source.getZ(i);
+		}
+	}
+
+	/**
+	 * Appends the segments of the source buffer starting in the range
+	 * `[from, to)` as segments starting at the current end of this buffer.
+	 */
+	private void copySegments(final PointBuffer source, final int from, final int to) {
+		int segment = Arrays.binarySearch(source.segmentStarts, 0, source.segmentCount, from);
+		if (segment < 0) {
+			segment = -segment - 1;
+		}
+
+		for (; segment < source.segmentCount && source.segmentStarts[segment] < to; segment++) {
+			this.appendSegment(source.segmentStarts[segment] - from + this.size, source.segmentTiers[segment]);
+		}
+	}
+
+	private void appendSegment(final int start, final byte tier) {
+		if (this.segmentCount > 0 && this.segmentStarts[this.segmentCount - 1] == start) {
+			this.segmentTiers[this.segmentCount - 1] = tier;
+			return;
+		}
+
+		if (this.segmentCount == this.segmentStarts.length) {
+			this.segmentStarts = Arrays.copyOf(this.segmentStarts, this.segmentCount * 2);
+			this.segmentTiers = Arrays.copyOf(this.segmentTiers, this.segmentCount * 2);
+		}
+
+		this.segmentStarts[this.segmentCount] = start;
+		this.segmentTiers[this.segmentCount] = tier;
+		this.segmentCount++;
+	}
+
+	/**
+	 * Checks whether this sealed buffer contains a piece with the given key.
+	 *
+	 * @param key
+	 *            Key of the piece.
+	 * @return Returns true if the piece can be copied from this buffer.
+	 */
+	public boolean containsPiece(final PieceKey key) {
+		return this.pieceIndex != null && this.pieceIndex.containsKey(key);
+	}
+
+	/**
+	 * Makes sure the buffer can hold at least the given amount of points
+	 * without growing again.
+	 *
+	 * @param points
+	 *            Minimum number of points the buffer has to be able to hold.
+	 */
+	public void ensureCapacity(final int points) {
+		this.checkNotSealed();
+
+		if (points * 3 > this.coords.length) {
+			this.coords = Arrays.copyOf(this.coords, Math.max(points, this.coords.length / 3 * 2) * 3);
+		}
+	}
+
+	/**
+	 * Releases the unused part of the backing array.
+	 */
+	public void trimToSize() {
+		this.checkNotSealed();
+
+		if (this.size * 3 < this.coords.length) {
+			this.coords = Arrays.copyOf(this.coords, this.size * 3);
+		}
+	}
+
+	/**
+	 * Trims the buffer and makes it read-only, any further modification throws
+	 * an {@link IllegalStateException}.
+	 */
+	public void seal() {
+		if (!this.sealed) {
+			this.trimToSize();
+			this.splitSegments();
+			this.quantized = new QuantizedPoints(this.coords, this.size);
+			this.coords = null;
+			this.computeSegmentBounds();
+			this.segmentGrid = new SegmentGrid(this.segmentBounds, this.segmentTiers, this.segmentCount);
+			this.duplicates = PointDeduplicator.findDuplicates(this);
+
+			if (this.duplicates != null) {
+				for (final long word : this.duplicates) {
+					this.duplicateCount += Long.bitCount(word);
+				}
+			}
+
+			if (!this.pieces.isEmpty()) {
+				this.pieceIndex = new HashMap<>(this.pieces.size() * 2);
+				for (final Piece piece : this.pieces) {
+					this.pieceIndex.put(piece.key, piece);
+				}
+			}
+			this.sealed = true;
+		}
+	}
+
+	/**
+	 * Splits segments with more than {@link #MAX_SEGMENT_POINTS} points and
+	 * drops empty ones.
+	 */
+	private void splitSegments() {
+		int count = 0;
+		for (int i = 0; i < this.segmentCount; i++) {
+			final int length = this.getSegmentEnd(i) - this.segmentStarts[i];
+			count += (length + MAX_SEGMENT_POINTS - 1) / MAX_SEGMENT_POINTS;
+		}
+
+		final int[] starts = new int[count];
+		final byte[] tiers = new byte[count];
+		int segment = 0;
+
+		for (int i = 0; i < this.segmentCount; i++) {
+			final int end = this.getSegmentEnd(i);
+
+			for (int start = this.segmentStarts[i]; start < end; start += MAX_SEGMENT_POINTS) {
+				starts[segment] = start;
+				tiers[segment] = this.segmentTiers[i];
+				segment++;
+			}
+		}
+
+		this.segmentStarts = starts;
+		this.segmentTiers = tiers;
+		this.segmentCount = count;
+	}
+
+	private void computeSegmentBounds() {
+		this.segmentBounds = new double[this.segmentCount * 6];
+
+		for (int segment = 0; segment < this.segmentCount; segment++) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double minZ = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			double maxZ = Double.NEGATIVE_INFINITY;
+
+			for (int i = this.segmentStarts[segment]; i < this.getSegmentEnd(segment); i++) {
+				minX = Math.min(minX, this.getX(i));
+				minY = Math.min(minY, this.getY(i));
+				minZ = Math.min(minZ, this.getZ(i));
+				maxX = Math.max(maxX, this.getX(i));
+				maxY = Math.max(maxY, this.getY(i));
+				maxZ = Math.max(maxZ, this.getZ(i));
+			}
+
+			final int b = segment * 6;
+			this.segmentBounds[b] = minX;
+			this.segmentBounds[b + 1] = minY;
+			this.segmentBounds[b + 2] = minZ;
+			this.segmentBounds[b + 3] = maxX;
+			this.segmentBounds[b + 4] = maxY;
+			this.segmentBounds[b + 5] = maxZ;
+		}
+	}
+
+	/**
+	 * Estimates the heap memory held by this buffer in bytes.
+	 *
+	 * @return Returns the estimated memory usage.
+	 */
+	public long estimateMemoryUsage() {
+		return 80 + (this.coords == null ? 0 : 16 + 8L * this.coords.length)
+				+ (this.quantized == null ? 0 : this.quantized.estimateMemoryUsage()) + 5L * this.segmentStarts.length
+				+ (this.segmentBounds == null ? 0 : 8L * this.segmentBounds.length)
+				+ (this.segmentGrid == null ? 0 : this.segmentGrid.estimateMemoryUsage())
+				+ (this.wireframe == null ? 0 : this.wireframe.estimateMemoryUsage())
+				+ this.estimateSimplifiedMemoryUsage()
+				+ (this.duplicates == null ? 0 : 16 + 8L * this.duplicates.length) + 96L * this.pieces.size();
+	}
+
+	/**
+	 * Estimates the heap memory quantizing the coordinates of this sealed
+	 * buffer and its simplified variants saved, compared to keeping them as
+	 * doubles.
+	 *
+	 * @return Returns the estimated saving in bytes.
+	 */
+	public long estimateQuantizationSaving() {
+		long saving = this.quantized == null ? 0 : 16 + 24L * this.size - this.quantized.estimateMemoryUsage();
+
+		if (this.simplified != null) {
+			for (final PointBuffer variant : this.simplified) {
+				if (variant != null) {
+					saving += variant.estimateQuantizationSaving();
+				}
+			}
+		}
+		return saving;
+	}
+
+	private long estimateSimplifiedMemoryUsage() {
+		if (this.simplified == null) {
+			return 0;
+		}
+
+		long usage = 16 + 8L * this.simplified.length;
+		for (final PointBuffer variant : this.simplified) {
+			if (variant != null) {
+				usage += variant.estimateMemoryUsage();
+			}
+		}
+		return usage;
+	}
+
+	private void checkNotSealed() {
+		if (this.sealed) {
+			throw new IllegalStateException("Point buffer is sealed");
+		}
+	}
+
+	/**
+	 * Checks whether a point of this sealed buffer coincides with another
+	 * point that is sent instead.
+	 *
+	 * @param index
+	 *            Index of the point.
+	 * @return Returns true if the point does not need to be sent.
+	 */
+	public boolean isDuplicate(final int index) {
+		return this.duplicates != null && (this.duplicates[index >>> 6] & 1L << index) != 0;
+	}
+
+	public int getDuplicateCount() {
+		return this.duplicateCount;
+	}
+
+	public double getX(final int index) {
+		return this.coords != null ? this.coords[index * 3] : this.quantized.getX(index);
+	}
+
+	public double getY(final int index) {
+		return this.coords != null ? this.coords[index * 3 + 1] : this.quantized.getY(index);
+	}
+
+	public double getZ(final int index) {
+		return this.coords != null ? this.coords[index * 3 + 2] : this.quantized.getZ(index);
+	}
+
+	/**
+	 * Collects the indices of the points of a range within a distance of a
+	 * position, see {@link QuantizedPoints#cull}.
+	 *
+	 * @param from
+	 *            Index of the first point to test.
+	 * @param to
+	 *            Index after the last point to test.
+	 * @param stride
+	 *            Distance between two tested indices.
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @param maxDistanceSquared
+	 *            Squared distance a point may have.
+	 * @param indices
+	 *            Array receiving the indices, needs room for every tested
+	 *            index after the given count.
+	 * @param count
+	 *            Number of indices already in the array.
+	 * @return Returns the number of indices in the array.
+	 */
+	public int cull(final int from, final int to, final int stride, final double x, final double y, final double z,
+			final double maxDistanceSquared, final int[] indices, final int count) {
+		if (this.coords == null) {
+			return this.quantized.cull(from, to, stride, x, y, z, maxDistanceSquared, indices, count);
+		}
+
+		int kept = count;
+		for (int i = from; i < to; i += stride) {
+			final double dx = this.coords[i * 3] - x;
+			final double dy = this.coords[i * 3 + 1] - y;
+			final double dz = this.coords[i * 3 + 2] - z;
+			indices[kept] = i;
+			kept += dx * dx + dy * dy + dz * dz <= maxDistanceSquared ? 1 : 0;
+		}
+		return kept;
+	}
+
+	/**
+	 * Retrieves the grid over the segments of this sealed buffer.
+	 *
+	 * @return Returns the segment grid, null if the buffer is not sealed.
+	 */
+	public SegmentGrid getSegmentGrid() {
+		return this.segmentGrid;
+	}
+
+	public int getSegmentCount() {
+		return this.segmentCount;
+	}
+
+	public int getSegmentStart(final int segment) {
+		return this.segmentStarts[segment];
+	}
+
+	public int getSegmentEnd(final int segment) {
+		return segment + 1 < this.segmentCount ? this.segmentStarts[segment + 1] : this.size;
+	}
+
+	public int getSegmentTier(final int segment) {
+		return this.segmentTiers[segment];
+	}
+
+	public boolean isFillSegment(final int segment) {
+		return this.segmentTiers[segment] == TIER_FILL;
+	}
+
+	public double getSegmentCenterX(final int segment) {
+		return (this.segmentBounds[segment * 6] + this.segmentBounds[segment * 6 + 3]) / 2.0;
+	}
+
+	public double getSegmentCenterY(final int segment) {
+		return (this.segmentBounds[segment * 6 + 1] + this.segmentBounds[segment * 6 + 4]) / 2.0;
+	}
+
+	public double getSegmentCenterZ(final int segment) {
+		return (this.segmentBounds[segment * 6 + 2] + this.segmentBounds[segment * 6 + 5]) / 2.0;
+	}
+
+	public double getSegmentMinX(final int segment) {
+		return this.segmentBounds[segment * 6];
+	}
+
+	public double getSegmentMinY(final int segment) {
+		return this.segmentBounds[segment * 6 + 1];
+	}
+
+	public double getSegmentMinZ(final int segment) {
+		return this.segmentBounds[segment * 6 + 2];
+	}
+
+	public double getSegmentMaxX(final int segment) {
+		return this.segmentBounds[segment * 6 + 3];
+	}
+
+	public double getSegmentMaxY(final int segment) {
+		return this.segmentBounds[segment * 6 + 4];
+	}
+
+	public double getSegmentMaxZ(final int segment) {
+		return this.segmentBounds[segment * 6 + 5];
+	}
+
+	/**
+	 * Retrieves the radius of the bounding sphere of a segment of this sealed
+	 * buffer around its center.
+	 *
+	 * @param segment
+	 *            Index of the segment.
+	 * @return Returns half the diagonal of the bounding box of the segment.
+	 */
+	public double getSegmentRadius(final int segment) {
+		final int b = segment * 6;
+		final double dx = this.segmentBounds[b + 3] - this.segmentBounds[b];
+		final double dy = this.segmentBounds[b + 4] - this.segmentBounds[b + 1];
+		final double dz = this.segmentBounds[b + 5] - this.segmentBounds[b + 2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz) / 2.0;
+	}
+
+	/**
+	 * Computes the squared distance between a position and the nearest point
+	 * of the bounding box of a segment of this sealed buffer.
+	 *
+	 * @param segment
+	 *            Index of the segment.
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @return Returns the squared distance, 0 if the position is inside.
+	 */
+	public double getSegmentDistanceSquared(final int segment, final double x, final double y, final double z) {
+		final int b = segment * 6;
+		final double dx = Math.max(Math.max(this.segmentBounds[b] - x, x - this.segmentBounds[b + 3]), 0.0);
+		final double dy = Math.max(Math.max(this.segmentBounds[b + 1] - y, y - this.segmentBounds[b + 4]), 0.0);
+		final double dz = Math.max(Math.max(this.segmentBounds[b + 2] - z, z - this.segmentBounds[b + 5]), 0.0);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Computes the squared distance between a position and the farthest corner
+	 * of the bounding box of a segment of this sealed buffer.
+	 *
+	 * @param segment
+	 *            Index of the segment.
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @return Returns the squared distance.
+	 */
+	public double getSegmentMaxDistanceSquared(final int segment, final double x, final double y, final double z) {
+		final int b = segment * 6;
+		final double dx = Math.max(Math.abs(this.segmentBounds[b] - x), Math.abs(this.segmentBounds[b + 3] - x));
+		final double dy = Math.max(Math.abs(this.segmentBounds[b + 1] - y), Math.abs(this.segmentBounds[b + 4] - y));
+		final double dz = Math.max(Math.abs(this.segmentBounds[b + 2] - z), Math.abs(this.segmentBounds[b + 5] - z));
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Checks whether there is nothing to show, neither points nor a wireframe
+	 * with lines or rings.
+	 *
+	 * @return Returns true if nothing would be shown.
+	 */
+	public boolean isEmpty() {
+		return this.size == 0 && (this.wireframe == null || this.wireframe.isEmpty());
+	}
+
+	public boolean isSealed() {
+		return this.sealed;
+	}
+
+	public World getWorld() {
+		return this.world;
+	}
+
+	public Wireframe getWireframe() {
+		return this.wireframe;
+	}
+
+	/**
+	 * Attaches a wireframe that is sampled for every viewer in addition to the
+	 * stored points.
+	 *
+	 * @param wireframe
+	 *            Wireframe to attach.
+	 */
+	public void setWireframe(final Wireframe wireframe) {
+		this.checkNotSealed();
+		this.wireframe = wireframe;
+	}
+
+	/**
+	 * Retrieves the variant of this buffer to show at a level of detail.
+	 *
+	 * @param level
+	 *            Level of detail, see {@link DetailLevel}.
+	 * @return Returns the simplified variant of the level or of the next
+	 *         finer level that has one, this buffer if there is none.
+	 */
+	public PointBuffer getSimplified(final int level) {
+		if (this.simplified != null) {
+			for (int i = Math.min(level, this.simplified.length - 1); i > 0; i--) {
+				if (this.simplified[i] != null) {
+					return this.simplified[i];
+				}
+			}
+		}
+		return this;
+	}
+
+	public boolean hasSimplified() {
+		return this.simplified != null;
+	}
+
+	/**
+	 * Attaches a sealed, simplified variant that is shown instead of this
+	 * buffer to viewers at the given level of detail or coarser.
+	 *
+	 * @param level
+	 *            Finest level of detail to show the variant at, at least 1.
+	 * @param variant
+	 *            Sealed variant to attach.
+	 */
+	public void setSimplified(final int level, final PointBuffer variant) {
+		this.checkNotSealed();
+
+		if (this.simplified == null) {
+			this.simplified = new PointBuffer[DetailLevel.OUTLINE_ONLY + 1];
+		}
+		this.simplified[level] = variant;
+	}
+
+	/**
+	 * Range of points belonging to one plotted piece.
+	 */
+	private static final class Piece {
+
+		private final PieceKey key;
+		private final int from;
+		private final int to;
+
+		private Piece(final PieceKey key, final int from, final int to) {
+			this.key = key;
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.rojel.wesv;
+
+/**
+ * Forward only cursor over points that are generated on demand.
+ *
+ * Unlike an iterator of vectors, advancing the cursor allocates nothing: the
+ * coordinates of the current point are read through the getters and are
+ * overwritten by the next call to {@link #next()}.
+ *
+ * Only {@link Wireframe}s are streamed this way. Plotted points are still
+ * stored in a {@link PointBuffer}, which is deduplicated, occlusion culled
+ * and shared by all viewers of a selection, so a selection is only streamed
+ * when it is shown as a wireframe.
+ */
+public interface PointCursor {
+
+	/**
+	 * Moves to the next point.
+	 *
+	 * @return Returns false if there are no more points.
+	 */
+	boolean next();
+
+	/**
+	 * Retrieves the X coordinate of the current point.
+	 *
+	 * @return Returns the X coordinate.
+	 */
+	double getX();
+
+	/**
+	 * Retrieves the Y coordinate of the current point.
+	 *
+	 * @return Returns the Y coordinate.
+	 */
+	double getY();
+
+	/**
+	 * Retrieves the Z coordinate of the current point.
+	 *
+	 * @return Returns the Z coordinate.
+	 */
+	double getZ();
+}
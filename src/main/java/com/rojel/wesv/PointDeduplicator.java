@@ -0,0 +1,97 @@
+package com.rojel.wesv;
+
+/**
+ * Finds coincident points of a point buffer, such as the corners shared by
+ * the edges of a cuboid or the points where rings cross the outline.
+ *
+ * Duplicates are found on a sealed buffer, whose coordinates have already
+ * been rounded to the {@link QuantizedPoints} grid. Points are coincident if
+ * they ended up on the same grid position, which is an exact comparison:
+ * plotted points less than half a grid step apart usually share a position,
+ * but two close points rounded to neighbouring positions are both kept.
+ *
+ * Grid positions are looked up in an open addressing hash table of point
+ * indices and their hashes, so no object is allocated per point. Segments
+ * are visited by priority tier, which keeps the copy of the highest priority
+ * tier and marks all later copies as duplicates.
+ */
+public final class PointDeduplicator {
+
+	private PointDeduplicator() {
+	}
+
+	/**
+	 * Marks every point that coincides with a point of the same or a higher
+	 * priority tier visited before it.
+	 *
+	 * @param points
+	 *            Buffer with its segments already split and its coordinates
+	 *            quantized.
+	 * @return Returns a bit set with a bit for every duplicate point, null if
+	 *         there are none.
+	 */
+	public static long[] findDuplicates(final PointBuffer points) {
+		final int size = points.size();
+		if (size < 2) {
+			return null;
+		}
+
+		final int capacity = Integer.highestOneBit(size * 2 - 1) << 1;
+		final int mask = capacity - 1;
+		final int[] table = new int[capacity];
+		final int[] hashes = new int[capacity];
+		long[] duplicates = null;
+
+		for (int tier = 0; tier < PointBuffer.TIER_COUNT; tier++) {
+			for (int segment = 0; segment < points.getSegmentCount(); segment++) {
+				if (points.getSegmentTier(segment) != tier) {
+					continue;
+				}
+
+				for (int i = points.getSegmentStart(segment); i < points.getSegmentEnd(segment); i++) {
+					final long qx = quantize(points.getX(i));
+					final long qy = quantize(points.getY(i));
+					final long qz = quantize(points.getZ(i));
+					final int hash = hash(qx, qy, qz);
+					int slot = hash & mask;
+
+					while (table[slot] != 0) {
+						final int other = table[slot] - 1;
+						if (hashes[slot] == hash && quantize(points.getX(other)) == qx
+								&& quantize(points.getY(other)) == qy && quantize(points.getZ(other)) == qz) {
+							break;
+						}
+						slot = slot + 1 & mask;
+					}
+
+					if (table[slot] == 0) {
+						table[slot] = i + 1;
+						hashes[slot] = hash;
+					} else {
+						if (duplicates == null) {
+							duplicates = new long[(size + 63) >>> 6];
+						}
+						duplicates[i >>> 6] |= 1L << i;
+					}
+				}
+			}
+		}
+		return duplicates;
+	}
+
+	/**
+	 * Grid position of a quantized coordinate, exact since the coordinate is
+	 * a multiple of the grid step.
+	 */
+	private static long quantize(final double value) {
+		return Math.round(value * QuantizedPoints.STEPS_PER_BLOCK);
+	}
+
+	private static int hash(final long qx, final long qy, final long qz) {
+		long h = qx * 0x9E3779B97F4A7C15L;
+		h ^= qy * 0xC2B2AE3D27D4EB4FL;
+		h ^= qz * 0x165667B19E3779F9L;
+		h ^= h >>> 29;
+		return (int) (h ^ h >>> 32);
+	}
+}
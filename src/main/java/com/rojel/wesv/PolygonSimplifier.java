@@ -0,0 +1,136 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker simplification of closed polygon outlines.
+ *
+ * A single pass assigns every vertex the largest tolerance at which it is
+ * still kept, so the outline for any tolerance is just the vertices above
+ * it, and the outlines of growing tolerances are nested.
+ */
+public final class PolygonSimplifier {
+
+	/**
+	 * Tolerance in blocks added per level of detail. With the default level
+	 * distance of 16 blocks this keeps the outline within about 3.6 degrees
+	 * of the exact one as seen by the viewer.
+	 */
+	public static final double TOLERANCE_PER_LEVEL = 1.0;
+
+	private PolygonSimplifier() {
+	}
+
+	/**
+	 * Computes the significance of every vertex of a closed polygon.
+	 *
+	 * The first vertex and the vertex farthest from it are always kept, the
+	 * two chains between them are simplified on their own.
+	 *
+	 * @param xs
+	 *            X coordinates of the vertices.
+	 * @param zs
+	 *            Z coordinates of the vertices.
+	 * @return Returns the largest tolerance at which every vertex is kept,
+	 *         infinite for the two anchors.
+	 */
+	public static double[] significance(final double[] xs, final double[] zs) {
+		final int n = xs.length;
+		final double[] significance = new double[n];
+
+		if (n < 4) {
+			Arrays.fill(significance, Double.POSITIVE_INFINITY);
+			return significance;
+		}
+
+		int farthest = 0;
+		double farthestDistance = -1.0;
+		for (int i = 1; i < n; i++) {
+			final double distance = Math.hypot(xs[i] - xs[0], zs[i] - zs[0]);
+			if (distance > farthestDistance) {
+				farthest = i;
+				farthestDistance = distance;
+			}
+		}
+
+		significance[0] = Double.POSITIVE_INFINITY;
+		significance[farthest] = Double.POSITIVE_INFINITY;
+
+		// start, end and the significance of the vertex splitting off the range
+		final int[] ranges = new int[n * 2];
+		final double[] bounds = new double[n];
+		ranges[1] = farthest;
+		ranges[2] = farthest;
+		ranges[3] = n;
+		bounds[0] = Double.POSITIVE_INFINITY;
+		bounds[1] = Double.POSITIVE_INFINITY;
+		int depth = 2;
+
+		while (depth > 0) {
+			depth--;
+			final int start = ranges[depth * 2];
+			final int end = ranges[depth * 2 + 1];
+			final double bound = bounds[depth];
+
+			if (end - start < 2) {
+				continue;
+			}
+
+			final double ax = xs[start];
+			final double az = zs[start];
+			final double bx = xs[end % n];
+			final double bz = zs[end % n];
+			int split = start + 1;
+			double splitDistance = -1.0;
+
+			for (int i = start + 1; i < end; i++) {
+				final double distance = distanceToSegment(xs[i], zs[i], ax, az, bx, bz);
+				if (distance > splitDistance) {
+					split = i;
+					splitDistance = distance;
+				}
+			}
+
+			significance[split] = Math.min(splitDistance, bound);
+			ranges[depth * 2] = start;
+			ranges[depth * 2 + 1] = split;
+			bounds[depth++] = significance[split];
+			ranges[depth * 2] = split;
+			ranges[depth * 2 + 1] = end;
+			bounds[depth++] = significance[split];
+		}
+		return significance;
+	}
+
+	/**
+	 * Selects the vertices kept at a tolerance.
+	 *
+	 * @param significance
+	 *            Significance of every vertex as computed by
+	 *            {@link #significance(double[], double[])}.
+	 * @param tolerance
+	 *            Maximum distance in blocks the outline may move.
+	 * @return Returns the indices of the kept vertices in order.
+	 */
+	public static int[] simplify(final double[] significance, final double tolerance) {
+		final int[] kept = new int[significance.length];
+		int count = 0;
+
+		for (int i = 0; i < significance.length; i++) {
+			if (significance[i] > tolerance) {
+				kept[count++] = i;
+			}
+		}
+		return Arrays.copyOf(kept, count);
+	}
+
+	private static double distanceToSegment(final double px, final double pz, final double ax, final double az,
+			final double bx, final double bz) {
+		final double dx = bx - ax;
+		final double dz = bz - az;
+		final double lengthSquared = dx * dx + dz * dz;
+		double t = lengthSquared > 0.0 ? ((px - ax) * dx + (pz - az) * dz) / lengthSquared : 0.0;
+		t = Math.max(0.0, Math.min(1.0, t));
+		return Math.hypot(px - ax - t * dx, pz - az - t * dz);
+	}
+}
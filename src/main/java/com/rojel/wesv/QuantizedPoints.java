@@ -0,0 +1,190 @@
+package com.rojel.wesv;
+
+/**
+ * Compact, read-only copy of point coordinates for long-lived geometry.
+ *
+ * Coordinates are rounded to {@value #STEPS_PER_BLOCK}ths of a block and
+ * stored as offsets from the smallest rounded coordinate of each axis. If
+ * every offset fits into 16 bits they are kept in a `short[]`, 6 bytes per
+ * point, otherwise in an `int[]`, 12 bytes per point, instead of the 24
+ * bytes of three doubles. Coordinates are only expanded back to doubles
+ * when they are read.
+ *
+ * Rounding is done on the absolute grid, so quantizing coordinates that have
+ * already been quantized gives exactly the same values again.
+ */
+public final class QuantizedPoints {
+
+	/**
+	 * Number of quantization steps per block. A particle is about a tenth of
+	 * a block wide, so the error of at most 1/32 block is not visible.
+	 */
+	public static final int STEPS_PER_BLOCK = 16;
+
+	private static final double STEP = 1.0 / STEPS_PER_BLOCK;
+
+	/**
+	 * Largest offset that fits into the 16 bit form.
+	 */
+	private static final long MAX_SHORT_OFFSET = 0xFFFF;
+
+	/**
+	 * Smallest rounded coordinate of every axis in steps.
+	 */
+	private final long originX;
+	private final long originY;
+	private final long originZ;
+
+	/**
+	 * Unsigned offsets from the origin, `x, y, z` for every point, null if
+	 * the offsets are stored as ints.
+	 */
+	private final short[] shortOffsets;
+
+	/**
+	 * Offsets from the origin, `x, y, z` for every point, null if the offsets
+	 * are stored as shorts.
+	 */
+	private final int[] intOffsets;
+
+	/**
+	 * Quantizes the given coordinates.
+	 *
+	 * @param coords
+	 *            Packed coordinates, `x, y, z` for every point.
+	 * @param size
+	 *            Number of points to quantize.
+	 */
+	public QuantizedPoints(final double[] coords, final int size) {
+		final long[] min = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+		final long[] max = { Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+
+		for (int i = 0; i < size * 3; i++) {
+			final long steps = quantize(coords[i]);
+			min[i % 3] = Math.min(min[i % 3], steps);
+			max[i % 3] = Math.max(max[i % 3], steps);
+		}
+
+		this.originX = size == 0 ? 0 : min[0];
+		this.originY = size == 0 ? 0 : min[1];
+		this.originZ = size == 0 ? 0 : min[2];
+
+		final long range = size == 0 ? 0 : Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+		final long[] origin = { this.originX, this.originY, this.originZ };
+
+		if (range <= MAX_SHORT_OFFSET) {
+			this.shortOffsets = new short[size * 3];
+			this.intOffsets = null;
+
+			for (int i = 0; i < size * 3; i++) {
+				this.shortOffsets[i] = (short) (quantize(coords[i]) - origin[i % 3]);
+			}
+		} else {
+			this.shortOffsets = null;
+			this.intOffsets = new int[size * 3];
+
+			for (int i = 0; i < size * 3; i++) {
+				this.intOffsets[i] = (int) (quantize(coords[i]) - origin[i % 3]);
+			}
+		}
+	}
+
+	private static long quantize(final double value) {
+		return Math.round(value * STEPS_PER_BLOCK);
+	}
+
+	private int offset(final int i) {
+		return this.shortOffsets != null ? this.shortOffsets[i] & 0xFFFF : this.intOffsets[i];
+	}
+
+	public double getX(final int index) {
+		return (this.originX + this.offset(index * 3)) * STEP;
+	}
+
+	public double getY(final int index) {
+		return (this.originY + this.offset(index * 3 + 1)) * STEP;
+	}
+
+	public double getZ(final int index) {
+		return (this.originZ + this.offset(index * 3 + 2)) * STEP;
+	}
+
+	/**
+	 * Collects the indices of the points of a range within a distance of a
+	 * position.
+	 *
+	 * The kernel makes a single pass over the packed offsets in integer
+	 * arithmetic without branching on the distance: the viewer is rounded
+	 * into the quantized space once, every index is written and only kept by
+	 * advancing the count if its point is in range. There is one loop per
+	 * storage form, so the loops themselves never test which form is used.
+	 *
+	 * @param from
+	 *            Index of the first point to test.
+	 * @param to
+	 *            Index after the last point to test.
+	 * @param stride
+	 *            Distance between two tested indices.
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @param maxDistanceSquared
+	 *            Squared distance in blocks a point may have.
+	 * @param indices
+	 *            Array receiving the indices, needs room for every tested
+	 *            index after the given count.
+	 * @param count
+	 *            Number of indices already in the array.
+	 * @return Returns the number of indices in the array.
+	 */
+	public int cull(final int from, final int to, final int stride, final double x, final double y, final double z,
+			final double maxDistanceSquared, final int[] indices, final int count) {
+		final long vx = Math.round(x * STEPS_PER_BLOCK) - this.originX;
+		final long vy = Math.round(y * STEPS_PER_BLOCK) - this.originY;
+		final long vz = Math.round(z * STEPS_PER_BLOCK) - this.originZ;
+		final long max = (long) Math.min(maxDistanceSquared * STEPS_PER_BLOCK * STEPS_PER_BLOCK, Long.MAX_VALUE / 4);
+		final short[] shorts = this.shortOffsets;
+		final int[] ints = this.intOffsets;
+		int kept = count;
+
+		if (shorts != null) {
+			for (int i = from; i < to; i += stride) {
+				final long dx = (shorts[i * 3] & 0xFFFF) - vx;
+				final long dy = (shorts[i * 3 + 1] & 0xFFFF) - vy;
+				final long dz = (shorts[i * 3 + 2] & 0xFFFF) - vz;
+				indices[kept] = i;
+				kept += dx * dx + dy * dy + dz * dz <= max ? 1 : 0;
+			}
+		} else {
+			for (int i = from; i < to; i += stride) {
+				final long dx = ints[i * 3] - vx;
+				final long dy = ints[i * 3 + 1] - vy;
+				final long dz = ints[i * 3 + 2] - vz;
+				indices[kept] = i;
+				kept += dx * dx + dy * dy + dz * dz <= max ? 1 : 0;
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Checks whether the offsets are stored in the 16 bit form.
+	 *
+	 * @return Returns true for 6 bytes per point, false for 12.
+	 */
+	public boolean isShort() {
+		return this.shortOffsets != null;
+	}
+
+	/**
+	 * Estimates the heap memory held by these points in bytes.
+	 *
+	 * @return Returns the estimated memory usage.
+	 */
+	public long estimateMemoryUsage() {
+		return 48 + 16 + (this.shortOffsets != null ? 2L * this.shortOffsets.length : 4L * this.intOffsets.length);
+	}
+}
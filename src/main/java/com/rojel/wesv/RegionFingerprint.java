@@ -0,0 +1,117 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.polyhedron.Triangle;
+
+/**
+ * Normalized, immutable description of everything {@link ShapeHelper} reads
+ * from a region.
+ *
+ * Regions with equal fingerprints are plotted to identical points, no matter
+ * which player selected them or in which order the corners were set.
+ */
+public final class RegionFingerprint {
+
+	private final Class<? extends Region> type;
+	private final String world;
+	private final double[] values;
+	private final int hash;
+
+	private RegionFingerprint(final Class<? extends Region> type, final String world, final double[] values) {
+		this.type = type;
+		this.world = world;
+		this.values = values;
+		this.hash = 31 * (31 * type.hashCode() + world.hashCode()) + Arrays.hashCode(values);
+	}
+
+	/**
+	 * Creates the fingerprint of the given region.
+	 *
+	 * @param region
+	 *            Region to create the fingerprint for.
+	 * @return Returns the fingerprint, or null if the region has no world or
+	 *         is of a type that cannot be visualized.
+	 */
+	public static RegionFingerprint of(final Region region) {
+		if (region == null || region.getWorld() == null) {
+			return null;
+		}
+
+		final Vector min = region.getMinimumPoint();
+		final Vector max = region.getMaximumPoint();
+		final double[] values;
+
+		if (region instanceof CuboidRegion) {
+			values = new double[] { min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ() };
+		} else if (region instanceof Polygonal2DRegion) {
+			final List<BlockVector2D> points = ((Polygonal2DRegion) region).getPoints();
+			values = new double[2 + points.size() * 2];
+			values[0] = min.getY();
+			values[1] = max.getY();
+
+			for (int i = 0; i < points.size(); i++) {
+				values[2 + i * 2] = points.get(i).getX();
+				values[3 + i * 2] = points.get(i).getZ();
+			}
+		} else if (region instanceof CylinderRegion || region instanceof EllipsoidRegion) {
+			final Vector center = region.getCenter();
+			values = new double[] { min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ(),
+					center.getX(), center.getY(), center.getZ() };
+		} else if (region instanceof ConvexPolyhedralRegion) {
+			final Triangle[] triangles = ((ConvexPolyhedralRegion) region).getTriangles().toArray(new Triangle[0]);
+			values = new double[triangles.length * 9];
+
+			for (int i = 0; i < triangles.length; i++) {
+				for (int j = 0; j < 3; j++) {
+					final Vector vertex = triangles[i].getVertex(j);
+					values[i * 9 + j * 3] = vertex.getX();
+					values[i * 9 + j * 3 + 1] = vertex.getY();
+					values[i * 9 + j * 3 + 2] = vertex.getZ();
+				}
+			}
+		} else {
+			return null;
+		}
+
+		return new RegionFingerprint(region.getClass(), region.getWorld().getName(), values);
+	}
+
+	/**
+	 * Estimates the heap memory held by this fingerprint in bytes.
+	 *
+	 * @return Returns the estimated memory usage.
+	 */
+	public long estimateMemoryUsage() {
+		return 32 + 16 + 8L * this.values.length;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof RegionFingerprint)) {
+			return false;
+		}
+
+		final RegionFingerprint other = (RegionFingerprint) obj;
+		return this.hash == other.hash && this.type.equals(other.type) && this.world.equals(other.world)
+				&& Arrays.equals(this.values, other.values);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+}
@@ -0,0 +1,227 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loose grid over the segments of a sealed {@link PointBuffer}.
+ *
+ * Segments are put into the chunk section sized cell containing the center
+ * of their bounding box. Every cell keeps the union of the bounding boxes of
+ * its segments, so a render pass tests one box per cell against the view
+ * distance and only looks at the segments of the cells in range. Within a
+ * cell, segments are grouped by priority tier, highest priority first.
+ */
+public final class SegmentGrid {
+
+	/**
+	 * Edge length of a cell in blocks, the size of a chunk section.
+	 */
+	public static final int CELL_SIZE = 16;
+
+	/**
+	 * Bounding box of every cell, `minX, minY, minZ, maxX, maxY, maxZ`.
+	 */
+	private final double[] bounds;
+
+	/**
+	 * Index into {@link #segments} of the first segment of every tier of every
+	 * cell, `cell * TIER_COUNT + tier`, followed by the total number of
+	 * segments.
+	 */
+	private final int[] groupStarts;
+
+	/**
+	 * Segment indices ordered by cell.
+	 */
+	private final int[] segments;
+
+	/**
+	 * Builds the grid over the given segment bounding boxes.
+	 *
+	 * @param segmentBounds
+	 *            Bounding box of every segment, `minX, minY, minZ, maxX, maxY,
+	 *            maxZ`.
+	 * @param segmentTiers
+	 *            Priority tier of every segment.
+	 * @param segmentCount
+	 *            Number of segments.
+	 */
+	SegmentGrid(final double[] segmentBounds, final byte[] segmentTiers, final int segmentCount) {
+		final Map<Long, Integer> cells = new HashMap<>();
+		final int[] groupOfSegment = new int[segmentCount];
+		int[] counts = new int[16 * PointBuffer.TIER_COUNT];
+
+		for (int segment = 0; segment < segmentCount; segment++) {
+			final int b = segment * 6;
+			final long key = cellKey((segmentBounds[b] + segmentBounds[b + 3]) / 2.0,
+					(segmentBounds[b + 1] + segmentBounds[b + 4]) / 2.0,
+					(segmentBounds[b + 2] + segmentBounds[b + 5]) / 2.0);
+			Integer cell = cells.get(key);
+
+			if (cell == null) {
+				cell = cells.size();
+				cells.put(key, cell);
+
+				if (cell * PointBuffer.TIER_COUNT == counts.length) {
+					counts = Arrays.copyOf(counts, counts.length * 2);
+				}
+			}
+
+			groupOfSegment[segment] = cell * PointBuffer.TIER_COUNT + segmentTiers[segment];
+			counts[groupOfSegment[segment]]++;
+		}
+
+		final int cellCount = cells.size();
+		final int groupCount = cellCount * PointBuffer.TIER_COUNT;
+		this.groupStarts = new int[groupCount + 1];
+		for (int group = 0; group < groupCount; group++) {
+			this.groupStarts[group + 1] = this.groupStarts[group] + counts[group];
+		}
+
+		this.segments = new int[segmentCount];
+		this.bounds = new double[cellCount * 6];
+		final int[] next = Arrays.copyOf(this.groupStarts, groupCount);
+
+		for (int cell = 0; cell < cellCount; cell++) {
+			final int b = cell * 6;
+			this.bounds[b] = this.bounds[b + 1] = this.bounds[b + 2] = Double.POSITIVE_INFINITY;
+			this.bounds[b + 3] = this.bounds[b + 4] = this.bounds[b + 5] = Double.NEGATIVE_INFINITY;
+		}
+
+		for (int segment = 0; segment < segmentCount; segment++) {
+			final int cell = groupOfSegment[segment] / PointBuffer.TIER_COUNT;
+			this.segments[next[groupOfSegment[segment]]++] = segment;
+
+			for (int i = 0; i < 3; i++) {
+				this.bounds[cell * 6 + i] = Math.min(this.bounds[cell * 6 + i], segmentBounds[segment * 6 + i]);
+				this.bounds[cell * 6 + i + 3] = Math.max(this.bounds[cell * 6 + i + 3],
+						segmentBounds[segment * 6 + i + 3]);
+			}
+		}
+	}
+
+	private static long cellKey(final double x, final double y, final double z) {
+		final long cellX = (long) Math.floor(x / CELL_SIZE) & 0x3FFFFF;
+		final long cellY = (long) Math.floor(y / CELL_SIZE) & 0xFFFFF;
+		final long cellZ = (long) Math.floor(z / CELL_SIZE) & 0x3FFFFF;
+		return cellX << 42 | cellY << 22 | cellZ;
+	}
+
+	public int getCellCount() {
+		return (this.groupStarts.length - 1) / PointBuffer.TIER_COUNT;
+	}
+
+	/**
+	 * Retrieves the position of the first segment of a cell, see
+	 * {@link #getSegment(int)}.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @return Returns the position of the first segment.
+	 */
+	public int getCellStart(final int cell) {
+		return this.groupStarts[cell * PointBuffer.TIER_COUNT];
+	}
+
+	public int getCellEnd(final int cell) {
+		return this.groupStarts[(cell + 1) * PointBuffer.TIER_COUNT];
+	}
+
+	/**
+	 * Retrieves the position of the first segment of a tier of a cell, see
+	 * {@link #getSegment(int)}.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @param tier
+	 *            Priority tier.
+	 * @return Returns the position of the first segment.
+	 */
+	public int getTierStart(final int cell, final int tier) {
+		return this.groupStarts[cell * PointBuffer.TIER_COUNT + tier];
+	}
+
+	public int getTierEnd(final int cell, final int tier) {
+		return this.groupStarts[cell * PointBuffer.TIER_COUNT + tier + 1];
+	}
+
+	/**
+	 * Retrieves the segment at a position of the cell ordered segment list.
+	 *
+	 * @param position
+	 *            Position between the start and end of a cell.
+	 * @return Returns the index of the segment in the point buffer.
+	 */
+	public int getSegment(final int position) {
+		return this.segments[position];
+	}
+
+	public double getCellMinX(final int cell) {
+		return this.bounds[cell * 6];
+	}
+
+	public double getCellMinZ(final int cell) {
+		return this.bounds[cell * 6 + 2];
+	}
+
+	public double getCellMaxX(final int cell) {
+		return this.bounds[cell * 6 + 3];
+	}
+
+	public double getCellMaxZ(final int cell) {
+		return this.bounds[cell * 6 + 5];
+	}
+
+	/**
+	 * Computes the squared distance between a position and the nearest point
+	 * of the bounding box of a cell.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @return Returns the squared distance, 0 if the position is inside.
+	 */
+	public double getCellDistanceSquared(final int cell, final double x, final double y, final double z) {
+		final int b = cell * 6;
+		final double dx = Math.max(Math.max(this.bounds[b] - x, x - this.bounds[b + 3]), 0.0);
+		final double dy = Math.max(Math.max(this.bounds[b + 1] - y, y - this.bounds[b + 4]), 0.0);
+		final double dz = Math.max(Math.max(this.bounds[b + 2] - z, z - this.bounds[b + 5]), 0.0);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Computes the squared distance between a position and the nearest cell
+	 * bounding box.
+	 *
+	 * @param x
+	 *            X coordinate of the position.
+	 * @param y
+	 *            Y coordinate of the position.
+	 * @param z
+	 *            Z coordinate of the position.
+	 * @return Returns the squared distance, infinite if the grid is empty.
+	 */
+	public double getDistanceSquared(final double x, final double y, final double z) {
+		double nearest = Double.POSITIVE_INFINITY;
+		for (int cell = 0; cell < this.getCellCount() && nearest > 0.0; cell++) {
+			nearest = Math.min(nearest, this.getCellDistanceSquared(cell, x, y, z));
+		}
+		return nearest;
+	}
+
+	/**
+	 * Estimates the heap memory held by this grid in bytes.
+	 *
+	 * @return Returns the estimated memory usage.
+	 */
+	public long estimateMemoryUsage() {
+		return 24 + 3 * 16 + 8L * this.bounds.length + 4L * this.groupStarts.length + 4L * this.segments.length;
+	}
+}
@@ -5,11 +5,13 @@
 package com.rojel.wesv;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.World;
 
 import com.sk89q.worldedit.BlockVector2D;
@@ -20,201 +22,880 @@ import com.sk89q.worldedit.regions.CylinderRegion;
 import com.sk89q.worldedit.regions.EllipsoidRegion;
 import com.sk89q.worldedit.regions.Polygonal2DRegion;
 import com.sk89q.worldedit.regions.Region;
-import com.sk89q.worldedit.regions.polyhedron.Triangle;
 
 public class ShapeHelper {
 
+	/**
+	 * Minimum estimated number of points a fork/join task plots on its own
+	 * before it is split any further.
+	 */
+	private static final int MIN_POINTS_PER_TASK = 2048;
+
+	/**
+	 * Maximum number of times the gaps are coarsened to fit a region into the
+	 * particle budget.
+	 */
+	private static final int MAX_COARSENING_STEPS = 16;
+
+	/**
+	 * Largest factor the gaps are coarsened by. Regions that still exceed the
+	 * budget are shown as a {@link Wireframe}, as their lines would be too
+	 * sparse to follow.
+	 */
+	private static final double MAX_COARSENING = 4.0;
+
 	private final Configuration config;
+	private final GeometryCache geometryCache;
+
+	/**
+	 * Pool the pieces of large selections are plotted on in parallel, limited
+	 * to the configured number of shape worker threads.
+	 */
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * Estimated number of points from which the pieces of a selection are
+	 * plotted in parallel, 0 disables parallel plotting.
+	 */
+	private volatile int parallelThreshold;
 
 	public ShapeHelper(final Configuration config) {
 		this.config = config;
+		this.geometryCache = new GeometryCache(config.getGeometryCacheMaxMemory() * 1024L * 1024L);
+		this.parallelThreshold = config.getParallelPlottingThreshold();
+		this.forkJoinPool = new ForkJoinPool(Math.max(config.getShapeWorkerThreads(), 1),
+				new PlotThreadFactory(), null, false);
 	}
 
-	public Collection<Location> getLocationsFromRegion(final Region region) {
-		final List<Vector> vectors = new ArrayList<>();
-		if (region != null) {
-			final Vector min = region.getMinimumPoint();
-			final Vector max = region.getMaximumPoint().add(1, 1, 1);
-			final int width = region.getWidth();
-			final int length = region.getLength();
-			final int height = region.getHeight();
+	/**
+	 * Applies reloaded configuration values and drops all cached geometry.
+	 */
+	public void reload() {
+		this.geometryCache.clear();
+		this.geometryCache.setMaxMemory(this.config.getGeometryCacheMaxMemory() * 1024L * 1024L);
+		this.parallelThreshold = this.config.getParallelPlottingThreshold();
+	}
 
-			if (region instanceof CuboidRegion) {
-				final List<Vector> bottomCorners = new ArrayList<>();
+	/**
+	 * Picks the settings to show a region with, so that the stored points stay
+	 * within the "maxParticles" budget.
+	 *
+	 * Regions estimated within the budget use the configured settings. Larger
+	 * regions get their gap and vertical gap coarsened until their estimate
+	 * fits the budget, by at most {@link #MAX_COARSENING}. Regions that still
+	 * exceed the budget are shown as a {@link Wireframe}, which only stores
+	 * the lines and ellipses of the region and generates the points a viewer
+	 * can see while sending them.
+	 *
+	 * Only reads the given arguments, so it is safe to call from any thread.
+	 *
+	 * @param region
+	 *            Region to show.
+	 * @param configured
+	 *            Settings taken from the configuration.
+	 * @param budget
+	 *            Estimated number of points a region may be plotted with, 0
+	 *            for no limit.
+	 * @return Returns the settings to plot the region with.
+	 */
+	public static PlotSettings chooseSettings(final Region region, final PlotSettings configured, final int budget) {
+		long estimate = estimatePoints(region, configured);
+		if (budget <= 0 || estimate <= budget) {
+			return configured;
+		}
 
-				bottomCorners.add(new Vector(min.getX(), min.getY(), min.getZ()));
-				bottomCorners.add(new Vector(max.getX(), min.getY(), min.getZ()));
-				bottomCorners.add(new Vector(max.getX(), min.getY(), max.getZ()));
-				bottomCorners.add(new Vector(min.getX(), min.getY(), max.getZ()));
+		final double maxGap = configured.getGapBetweenPoints() * MAX_COARSENING;
+		final double maxVerticalGap = configured.getVerticalGap() * MAX_COARSENING;
+		PlotSettings settings = configured;
 
-				for (int i = 0; i < bottomCorners.size(); ++i) {
-					final Vector p1 = bottomCorners.get(i);
-					final Vector p2 = bottomCorners.get(i + 1 < bottomCorners.size() ? i + 1 : 0);
-					final Vector p3 = p1.add(0, height, 0);
-					final Vector p4 = p2.add(0, height, 0);
+		for (int i = 0; i < MAX_COARSENING_STEPS && estimate > budget; i++) {
+			final double scale = Math.max(Math.sqrt((double) estimate / budget), 1.1);
+			final double gap = Math.min(settings.getGapBetweenPoints() * scale, maxGap);
+			final double verticalGap = Math.min(settings.getVerticalGap() * scale, maxVerticalGap);
 
-					vectors.addAll(this.plotLine(p1, p2));
-					vectors.addAll(this.plotLine(p3, p4));
-					vectors.addAll(this.plotLine(p1, p3));
+			if (gap == settings.getGapBetweenPoints() && verticalGap == settings.getVerticalGap()) {
+				break;
+			}
 
-					if (!this.config.isCuboidLinesEnabled()) {
-						continue;
-					}
+			settings = settings.withGaps(gap, verticalGap);
+			estimate = estimatePoints(region, settings);
+		}
+		return estimate <= budget ? settings : configured.toWireframe();
+	}
 
-					for (double offset = this.config.getVerticalGap(); offset < height; offset += this.config
-							.getVerticalGap()) {
-						final Vector p5 = p1.add(0.0, offset, 0.0);
-						final Vector p6 = p2.add(0.0, offset, 0.0);
-						vectors.addAll(this.plotLine(p5, p6));
-					}
+	/**
+	 * Estimates the number of points {@link #plotPoints} gives for a region
+	 * from its dimensions alone, without plotting or iterating its blocks.
+	 *
+	 * @param region
+	 *            Region to estimate.
+	 * @param settings
+	 *            Settings the region would be plotted with.
+	 * @return Returns the estimated number of points.
+	 */
+	public static long estimatePoints(final Region region, final PlotSettings settings) {
+		final double gap = settings.getGapBetweenPoints();
+		final double verticalGap = settings.getVerticalGap();
+		final Vector min = region.getMinimumPoint();
+		final Vector max = region.getMaximumPoint().add(1, 1, 1);
+		final int height = region.getHeight();
+
+		if (region instanceof CuboidRegion) {
+			final double width = max.getX() - min.getX();
+			final double length = max.getZ() - min.getZ();
+			return 2 * (sideEstimate(settings, width, height, settings.isCuboidLinesEnabled())
+					+ sideEstimate(settings, length, height, settings.isCuboidLinesEnabled()));
+		} else if (region instanceof Polygonal2DRegion) {
+			final List<BlockVector2D> polyPoints = ((Polygonal2DRegion) region).getPoints();
+			long estimate = 0;
+
+			for (int i = 0; i < polyPoints.size(); i++) {
+				final BlockVector2D p1 = polyPoints.get(i);
+				final BlockVector2D p2 = polyPoints.get(i + 1 < polyPoints.size() ? i + 1 : 0);
+				estimate += sideEstimate(settings, Math.hypot(p2.getX() - p1.getX(), p2.getZ() - p1.getZ()), height,
+						settings.isPolygonLinesEnabled());
+			}
+			return estimate;
+		} else if (region instanceof CylinderRegion) {
+			final int rings = 2 + (settings.isCylinderLinesEnabled() ? fillCount(height, verticalGap) : 0);
+			return (long) rings * ellipsePoints(settings, region.getWidth() / 2.0, region.getLength() / 2.0)
+					+ 4L * ((long) (height / gap) + 3);
+		} else if (region instanceof EllipsoidRegion) {
+			final Vector radius = ((EllipsoidRegion) region).getRadius().add(0.5, 0.5, 0.5);
+			long estimate = ellipsePoints(settings, radius.getY(), radius.getZ())
+					+ ellipsePoints(settings, radius.getX(), radius.getZ())
+					+ ellipsePoints(settings, radius.getX(), radius.getY());
+
+			if (settings.isEllipsoidLinesEnabled()) {
+				for (double offset = verticalGap; offset < radius.getY(); offset += verticalGap) {
+					final double heightRatio = offset / radius.getY();
+					final double radiusRatio = Math.sqrt(1.0 - heightRatio * heightRatio);
+					estimate += 2L * ellipsePoints(settings, radius.getX() * radiusRatio,
+							radius.getZ() * radiusRatio);
 				}
-			} else if (region instanceof Polygonal2DRegion) {
-				final Polygonal2DRegion polyRegion = (Polygonal2DRegion) region;
-				final List<Vector> bottomCorners = new ArrayList<>();
+			}
+			return estimate;
+		} else if (region instanceof ConvexPolyhedralRegion) {
+			final HullEdges hull = HullEdges.of((ConvexPolyhedralRegion) region);
+			long estimate = hull.getVertexCount();
+
+			for (int edge = 0; edge < hull.getEdgeCount(); edge++) {
+				final int a = hull.getVertex(edge, 0);
+				final int b = hull.getVertex(edge, 1);
+				final double dx = hull.getX(b) - hull.getX(a);
+				final double dy = hull.getY(b) - hull.getY(a);
+				final double dz = hull.getZ(b) - hull.getZ(a);
+				estimate += (long) (Math.sqrt(dx * dx + dy * dy + dz * dz) / gap) + 1;
+			}
+			return estimate;
+		}
+		return 0;
+	}
 
-				for (final BlockVector2D vec2D : polyRegion.getPoints()) {
-					bottomCorners.add(new Vector(vec2D.getX() + 0.5, min.getY(), vec2D.getZ() + 0.5));
-				}
+	/**
+	 * Estimates the points of one prism side of the given length, including
+	 * its two corners.
+	 */
+	private static long sideEstimate(final PlotSettings settings, final double length, final int height,
+			final boolean horizontalLines) {
+		final double gap = settings.getGapBetweenPoints();
+		final int lines = horizontalLines ? fillCount(height, settings.getVerticalGap()) : 0;
+		return ((long) (length / gap) + 1) * (2 + lines) + (long) (height / gap) + 3;
+	}
 
-				for (int i = 0; i < bottomCorners.size(); ++i) {
-					final Vector p1 = bottomCorners.get(i);
-					final Vector p2 = bottomCorners.get(i + 1 < bottomCorners.size() ? i + 1 : 0);
-					final Vector p3 = p1.add(0, height, 0);
-					final Vector p4 = p2.add(0, height, 0);
+	/**
+	 * Counts the offsets `verticalGap, 2 * verticalGap, ...` below the given
+	 * height, which get a horizontal line or ring.
+	 */
+	private static int fillCount(final double height, final double verticalGap) {
+		return Math.max((int) Math.ceil(height / verticalGap) - 1, 0);
+	}
 
-					vectors.addAll(this.plotLine(p1, p2));
-					vectors.addAll(this.plotLine(p3, p4));
-					vectors.addAll(this.plotLine(p1, p3));
+	/**
+	 * Stops the threads used for parallel plotting.
+	 */
+	public void shutdown() {
+		this.forkJoinPool.shutdownNow();
+	}
 
-					if (!this.config.isPolygonLinesEnabled()) {
-						continue;
-					}
+	/**
+	 * Looks up already plotted points for a region in the shared geometry
+	 * cache.
+	 *
+	 * @param fingerprint
+	 *            Fingerprint of the region.
+	 * @param settings
+	 *            Settings to plot the region with.
+	 * @return Returns the cached, sealed point buffer or null if the region
+	 *         has not been plotted with these settings yet.
+	 */
+	public PointBuffer getCachedPoints(final RegionFingerprint fingerprint, final PlotSettings settings) {
+		return this.geometryCache.get(fingerprint, settings);
+	}
 
-					for (double offset = this.config.getVerticalGap(); offset < height; offset += this.config
-							.getVerticalGap()) {
-						final Vector p5 = p1.add(0.0, offset, 0.0);
-						final Vector p6 = p2.add(0.0, offset, 0.0);
-						vectors.addAll(this.plotLine(p5, p6));
-					}
-				}
-			} else if (region instanceof CylinderRegion) {
-				final CylinderRegion cylRegion = (CylinderRegion) region;
-				final Vector center = cylRegion.getCenter().add(0.5, 0.5, 0.5);
-				final double rx = width / 2.0;
-				final double rz = length / 2.0;
-				final List<Vector> bottomCorners = this.plotEllipse(center, new Vector(rx, 0.0, rz));
+	/**
+	 * Plots the points visualizing the given region and stores them in the
+	 * shared geometry cache. Only reads the given arguments, so it is safe to
+	 * call from any thread as long as the region is not modified meanwhile.
+	 *
+	 * The sides and rings that are identical to ones of the previously shown
+	 * points are copied from there, so modifying a single corner or polygon
+	 * vertex only plots the pieces touching it.
+	 *
+	 * @param region
+	 *            Region to visualize.
+	 * @param world
+	 *            Bukkit world of the region.
+	 * @param fingerprint
+	 *            Fingerprint of the region.
+	 * @param settings
+	 *            Settings to plot the region with.
+	 * @param previous
+	 *            Points previously shown for the same player, may be null.
+	 * @return Returns a sealed point buffer, empty if nothing can be shown.
+	 */
+	public PointBuffer plotPoints(final Region region, final World world, final RegionFingerprint fingerprint,
+			final PlotSettings settings, final PointBuffer previous) {
+		final PointBuffer points = this.plotRegion(region, world, settings, previous);
+		points.seal();
+
+		if (!points.isEmpty()) {
+			this.geometryCache.put(fingerprint, settings, points);
+		}
+		return points;
+	}
 
-				vectors.addAll(bottomCorners);
+	public GeometryCache getGeometryCache() {
+		return this.geometryCache;
+	}
 
-				for (final Vector vec : bottomCorners) {
-					vectors.add(vec.add(0, height, 0));
-				}
+	private PointBuffer plotRegion(final Region region, final World world, final PlotSettings settings,
+			final PointBuffer previous) {
+		if (world == null) {
+			return new PointBuffer(null, 0);
+		}
 
-				final Vector p1 = new Vector((max.getX() + min.getX()) / 2.0, min.getY(), min.getZ());
-				final Vector p2 = new Vector((max.getX() + min.getX()) / 2.0, min.getY(), max.getZ());
-				final Vector p3 = new Vector(min.getX(), min.getY(), (max.getZ() + min.getZ()) / 2.0);
-				final Vector p4 = new Vector(max.getX(), min.getY(), (max.getZ() + min.getZ()) / 2.0);
-
-				vectors.addAll(this.plotLine(p1, p1.add(0, height, 0)));
-				vectors.addAll(this.plotLine(p2, p2.add(0, height, 0)));
-				vectors.addAll(this.plotLine(p3, p3.add(0, height, 0)));
-				vectors.addAll(this.plotLine(p4, p4.add(0, height, 0)));
-
-				if (this.config.isCylinderLinesEnabled()) {
-					for (double offset = this.config.getVerticalGap(); offset < height; offset += this.config
-							.getVerticalGap()) {
-						for (final Vector vec2 : bottomCorners) {
-							vectors.add(vec2.add(0.0, offset, 0.0));
-						}
-					}
+		if (settings.isWireframe()) {
+			final PointBuffer points = new PointBuffer(world, 0);
+			points.setWireframe(this.buildWireframe(region, settings));
+			return points;
+		}
+
+		final PointBuffer points = new PointBuffer(world);
+		final PointBuffer reusable = previous != null && world.equals(previous.getWorld()) ? previous : null;
+		final List<PieceJob> pieces = new ArrayList<>();
+		final Vector min = region.getMinimumPoint();
+		final Vector max = region.getMaximumPoint().add(1, 1, 1);
+		final int width = region.getWidth();
+		final int length = region.getLength();
+		final int height = region.getHeight();
+
+		if (region instanceof CuboidRegion) {
+			final double[] cornersX = { min.getX(), max.getX(), max.getX(), min.getX() };
+			final double[] cornersZ = { min.getZ(), min.getZ(), max.getZ(), max.getZ() };
+
+			this.addSides(settings, pieces, cornersX, cornersZ, min.getY(), height, settings.isCuboidLinesEnabled());
+			this.plotPieces(points, reusable, pieces);
+		} else if (region instanceof Polygonal2DRegion) {
+			final List<BlockVector2D> polyPoints = ((Polygonal2DRegion) region).getPoints();
+			final double[] cornersX = new double[polyPoints.size()];
+			final double[] cornersZ = new double[polyPoints.size()];
+
+			for (int i = 0; i < cornersX.length; ++i) {
+				cornersX[i] = polyPoints.get(i).getX() + 0.5;
+				cornersZ[i] = polyPoints.get(i).getZ() + 0.5;
+			}
+
+			this.addSides(settings, pieces, cornersX, cornersZ, min.getY(), height,
+					settings.isPolygonLinesEnabled());
+			this.plotPieces(points, reusable, pieces);
+			this.plotSimplified(settings, points, reusable, cornersX, cornersZ, min.getY(), height);
+		} else if (region instanceof CylinderRegion) {
+			final Vector center = ((CylinderRegion) region).getCenter();
+			final double centerX = center.getX() + 0.5;
+			final double centerZ = center.getZ() + 0.5;
+			final double rx = width / 2.0;
+			final double rz = length / 2.0;
+
+			final int ringStart = points.size();
+			this.addEllipse(settings, pieces, centerX, center.getY() + 0.5, centerZ, rx, 0.0, rz,
+					PointBuffer.TIER_EDGE);
+			this.plotPieces(points, reusable, pieces);
+			final int ringEnd = points.size();
+
+			points.addShifted(ringStart, ringEnd, height, PointBuffer.TIER_EDGE);
+
+			final double midX = (max.getX() + min.getX()) / 2.0;
+			final double midZ = (max.getZ() + min.getZ()) / 2.0;
+			final double topY = min.getY() + height;
+			final double[] pillarsX = { midX, midX, min.getX(), max.getX() };
+			final double[] pillarsZ = { min.getZ(), max.getZ(), midZ, midZ };
+
+			for (int i = 0; i < pillarsX.length; i++) {
+				this.plotLine(settings, points, pillarsX[i], min.getY(), pillarsZ[i], pillarsX[i], topY, pillarsZ[i],
+						PointBuffer.TIER_PILLAR);
+				plotCorner(points, pillarsX[i], min.getY(), pillarsZ[i]);
+				plotCorner(points, pillarsX[i], topY, pillarsZ[i]);
+			}
+
+			if (settings.isCylinderLinesEnabled()) {
+				for (double offset = settings.getVerticalGap(); offset < height; offset += settings
+						.getVerticalGap()) {
+					points.addShifted(ringStart, ringEnd, offset, PointBuffer.TIER_FILL);
 				}
-			} else if (region instanceof EllipsoidRegion) {
-				final EllipsoidRegion ellRegion = (EllipsoidRegion) region;
-				final Vector ellRadius = ellRegion.getRadius().add(0.5, 0.5, 0.5);
-				final Vector center = ellRegion.getCenter().add(0.5, 0.5, 0.5);
-
-				vectors.addAll(this.plotEllipse(center, new Vector(0.0, ellRadius.getY(), ellRadius.getZ())));
-				vectors.addAll(this.plotEllipse(center, new Vector(ellRadius.getX(), 0.0, ellRadius.getZ())));
-				vectors.addAll(this.plotEllipse(center, new Vector(ellRadius.getX(), ellRadius.getY(), 0.0)));
-
-				if (this.config.isEllipsoidLinesEnabled()) {
-					for (double offset = this.config.getVerticalGap(); offset < ellRadius.getY(); offset += this.config
-							.getVerticalGap()) {
-						final Vector center1 = new Vector(center.getX(), center.getY() - offset, center.getZ());
-						final Vector center2 = new Vector(center.getX(), center.getY() + offset, center.getZ());
-						final double difference = Math.abs(center1.getY() - center.getY());
-						final double radiusRatio = Math.cos(Math.asin(difference / ellRadius.getY()));
-						final double rx = ellRadius.getX() * radiusRatio;
-						final double rz = ellRadius.getZ() * radiusRatio;
-						vectors.addAll(this.plotEllipse(center1, new Vector(rx, 0.0, rz)));
-						vectors.addAll(this.plotEllipse(center2, new Vector(rx, 0.0, rz)));
-					}
+			}
+		} else if (region instanceof EllipsoidRegion) {
+			final EllipsoidRegion ellRegion = (EllipsoidRegion) region;
+			final Vector ellRadius = ellRegion.getRadius().add(0.5, 0.5, 0.5);
+			final Vector center = ellRegion.getCenter().add(0.5, 0.5, 0.5);
+			final double cx = center.getX();
+			final double cy = center.getY();
+			final double cz = center.getZ();
+
+			this.addEllipse(settings, pieces, cx, cy, cz, 0.0, ellRadius.getY(), ellRadius.getZ(),
+					PointBuffer.TIER_EDGE);
+			this.addEllipse(settings, pieces, cx, cy, cz, ellRadius.getX(), 0.0, ellRadius.getZ(),
+					PointBuffer.TIER_EDGE);
+			this.addEllipse(settings, pieces, cx, cy, cz, ellRadius.getX(), ellRadius.getY(), 0.0,
+					PointBuffer.TIER_EDGE);
+
+			if (settings.isEllipsoidLinesEnabled()) {
+				for (double offset = settings.getVerticalGap(); offset < ellRadius.getY(); offset += settings
+						.getVerticalGap()) {
+					final double heightRatio = offset / ellRadius.getY();
+					final double radiusRatio = Math.sqrt(1.0 - heightRatio * heightRatio);
+					final double rx = ellRadius.getX() * radiusRatio;
+					final double rz = ellRadius.getZ() * radiusRatio;
+					this.addEllipse(settings, pieces, cx, cy - offset, cz, rx, 0.0, rz, PointBuffer.TIER_FILL);
+					this.addEllipse(settings, pieces, cx, cy + offset, cz, rx, 0.0, rz, PointBuffer.TIER_FILL);
 				}
-			} else if (region instanceof ConvexPolyhedralRegion) {
-				final ConvexPolyhedralRegion convexRegion = (ConvexPolyhedralRegion) region;
-				final List<Vector> corners = new ArrayList<>();
+			}
 
-				for (final Triangle triangle : convexRegion.getTriangles()) {
-					for (int i = 0; i < 3; i++) {
-						corners.add(triangle.getVertex(i).add(0.5, 0.5, 0.5));
-					}
+			this.plotPieces(points, reusable, pieces);
+		} else if (region instanceof ConvexPolyhedralRegion) {
+			final HullEdges hull = HullEdges.of((ConvexPolyhedralRegion) region);
+
+			for (int edge = 0; edge < hull.getEdgeCount(); edge++) {
+				final int a = hull.getVertex(edge, 0);
+				final int b = hull.getVertex(edge, 1);
+				this.plotLine(settings, points, hull.getX(a) + 0.5, hull.getY(a) + 0.5, hull.getZ(a) + 0.5,
+						hull.getX(b) + 0.5, hull.getY(b) + 0.5, hull.getZ(b) + 0.5, PointBuffer.TIER_EDGE);
+			}
+
+			for (int vertex = 0; vertex < hull.getVertexCount(); vertex++) {
+				plotCorner(points, hull.getX(vertex) + 0.5, hull.getY(vertex) + 0.5, hull.getZ(vertex) + 0.5);
+			}
+		}
+
+		return points;
+	}
+
+	/**
+	 * Describes the lines and ellipses {@link #plotRegion} would plot for a
+	 * region without sampling them. Fill lines and rings are added as stacks,
+	 * so the size of the description only depends on the number of corners of
+	 * the region.
+	 */
+	private Wireframe buildWireframe(final Region region, final PlotSettings settings) {
+		final Wireframe wireframe = new Wireframe();
+		final double gap = settings.getGapBetweenPoints();
+		final double verticalGap = settings.getVerticalGap();
+		final Vector min = region.getMinimumPoint();
+		final Vector max = region.getMaximumPoint().add(1, 1, 1);
+		final int height = region.getHeight();
+		final double minY = min.getY();
+		final double topY = minY + height;
+
+		if (region instanceof CylinderRegion) {
+			final Vector center = ((CylinderRegion) region).getCenter();
+			final double centerX = center.getX() + 0.5;
+			final double centerY = center.getY() + 0.5;
+			final double centerZ = center.getZ() + 0.5;
+			final double rx = region.getWidth() / 2.0;
+			final double rz = region.getLength() / 2.0;
+			final double midX = (max.getX() + min.getX()) / 2.0;
+			final double midZ = (max.getZ() + min.getZ()) / 2.0;
+
+			wireframe.addEllipse(centerX, centerY, centerZ, rx, rz, Wireframe.PLANE_XZ, gap, PointBuffer.TIER_EDGE);
+			wireframe.addEllipse(centerX, centerY + height, centerZ, rx, rz, Wireframe.PLANE_XZ, gap,
+					PointBuffer.TIER_EDGE);
+			final double[] pillarsX = { midX, midX, min.getX(), max.getX() };
+			final double[] pillarsZ = { min.getZ(), max.getZ(), midZ, midZ };
+
+			for (int i = 0; i < pillarsX.length; i++) {
+				this.addWireframeLine(settings, wireframe, pillarsX[i], minY, pillarsZ[i], pillarsX[i], topY,
+						pillarsZ[i], PointBuffer.TIER_PILLAR);
+				addWireframeCorner(wireframe, pillarsX[i], minY, pillarsZ[i]);
+				addWireframeCorner(wireframe, pillarsX[i], topY, pillarsZ[i]);
+			}
+
+			if (settings.isCylinderLinesEnabled()) {
+				wireframe.addRingStack(centerX, centerY, centerZ, rx, rz, gap, verticalGap, 1,
+						fillCount(height, verticalGap), 0.0, PointBuffer.TIER_FILL);
+			}
+		} else if (region instanceof EllipsoidRegion) {
+			final EllipsoidRegion ellRegion = (EllipsoidRegion) region;
+			final Vector radius = ellRegion.getRadius().add(0.5, 0.5, 0.5);
+			final Vector center = ellRegion.getCenter().add(0.5, 0.5, 0.5);
+			final double cx = center.getX();
+			final double cy = center.getY();
+			final double cz = center.getZ();
+
+			wireframe.addEllipse(cx, cy, cz, radius.getY(), radius.getZ(), Wireframe.PLANE_YZ, gap,
+					PointBuffer.TIER_EDGE);
+			wireframe.addEllipse(cx, cy, cz, radius.getX(), radius.getZ(), Wireframe.PLANE_XZ, gap,
+					PointBuffer.TIER_EDGE);
+			wireframe.addEllipse(cx, cy, cz, radius.getX(), radius.getY(), Wireframe.PLANE_XY, gap,
+					PointBuffer.TIER_EDGE);
+
+			if (settings.isEllipsoidLinesEnabled()) {
+				final int rings = fillCount(radius.getY(), verticalGap);
+				wireframe.addRingStack(cx, cy, cz, radius.getX(), radius.getZ(), gap, -verticalGap, 1, rings,
+						radius.getY(), PointBuffer.TIER_FILL);
+				wireframe.addRingStack(cx, cy, cz, radius.getX(), radius.getZ(), gap, verticalGap, 1, rings,
+						radius.getY(), PointBuffer.TIER_FILL);
+			}
+		} else if (region instanceof ConvexPolyhedralRegion) {
+			final HullEdges hull = HullEdges.of((ConvexPolyhedralRegion) region);
+
+			for (int edge = 0; edge < hull.getEdgeCount(); edge++) {
+				final int a = hull.getVertex(edge, 0);
+				final int b = hull.getVertex(edge, 1);
+				this.addWireframeLine(settings, wireframe, hull.getX(a) + 0.5, hull.getY(a) + 0.5,
+						hull.getZ(a) + 0.5, hull.getX(b) + 0.5, hull.getY(b) + 0.5, hull.getZ(b) + 0.5,
+						PointBuffer.TIER_EDGE);
+			}
+
+			for (int vertex = 0; vertex < hull.getVertexCount(); vertex++) {
+				addWireframeCorner(wireframe, hull.getX(vertex) + 0.5, hull.getY(vertex) + 0.5,
+						hull.getZ(vertex) + 0.5);
+			}
+		} else {
+			final double[] cornersX;
+			final double[] cornersZ;
+			final boolean horizontalLines;
+
+			if (region instanceof CuboidRegion) {
+				cornersX = new double[] { min.getX(), max.getX(), max.getX(), min.getX() };
+				cornersZ = new double[] { min.getZ(), min.getZ(), max.getZ(), max.getZ() };
+				horizontalLines = settings.isCuboidLinesEnabled();
+			} else if (region instanceof Polygonal2DRegion) {
+				final List<BlockVector2D> polyPoints = ((Polygonal2DRegion) region).getPoints();
+				cornersX = new double[polyPoints.size()];
+				cornersZ = new double[polyPoints.size()];
+
+				for (int i = 0; i < cornersX.length; ++i) {
+					cornersX[i] = polyPoints.get(i).getX() + 0.5;
+					cornersZ[i] = polyPoints.get(i).getZ() + 0.5;
 				}
+				horizontalLines = settings.isPolygonLinesEnabled();
+			} else {
+				return wireframe;
+			}
 
-				for (int i = 0; i < corners.size(); i++) {
-					vectors.addAll(plotLine(corners.get(i), corners.get(i + 1 < corners.size() ? i + 1 : 0)));
+			for (int i = 0; i < cornersX.length; ++i) {
+				final int next = i + 1 < cornersX.length ? i + 1 : 0;
+				final double x1 = cornersX[i];
+				final double z1 = cornersZ[i];
+				final double x2 = cornersX[next];
+				final double z2 = cornersZ[next];
+
+				this.addWireframeLine(settings, wireframe, x1, minY, z1, x2, minY, z2, PointBuffer.TIER_EDGE);
+				this.addWireframeLine(settings, wireframe, x1, topY, z1, x2, topY, z2, PointBuffer.TIER_EDGE);
+				this.addWireframeLine(settings, wireframe, x1, minY, z1, x1, topY, z1, PointBuffer.TIER_PILLAR);
+				addWireframeCorner(wireframe, x1, minY, z1);
+				addWireframeCorner(wireframe, x1, topY, z1);
+
+				if (horizontalLines) {
+					wireframe.addLineStack(x1, minY + verticalGap, z1, x2, minY + verticalGap, z2,
+							(int) (Math.sqrt((x2 - x1) * (x2 - x1) + (z2 - z1) * (z2 - z1)) / gap) + 1, verticalGap,
+							fillCount(height, verticalGap), PointBuffer.TIER_FILL);
 				}
 			}
 		}
 
-		final List<Location> locations = new ArrayList<>();
-		if (!vectors.isEmpty() && region != null && region.getWorld() != null) {
-			final World world = Bukkit.getWorld(region.getWorld().getName());
-			for (final Vector vector : vectors) {
-				locations.add(new Location(world, vector.getX(), vector.getY(), vector.getZ()));
+		wireframe.trimToSize();
+		return wireframe;
+	}
+
+	private static void addWireframeCorner(final Wireframe wireframe, final double x, final double y,
+			final double z) {
+		wireframe.addLine(x, y, z, x, y, z, 1, PointBuffer.TIER_CORNER);
+	}
+
+	private void addWireframeLine(final PlotSettings settings, final Wireframe wireframe, final double x1,
+			final double y1, final double z1, final double x2, final double y2, final double z2, final int tier) {
+		final double dx = x2 - x1;
+		final double dy = y2 - y1;
+		final double dz = z2 - z1;
+		final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		wireframe.addLine(x1, y1, z1, x2, y2, z2, (int) (length / settings.getGapBetweenPoints()) + 1, tier);
+	}
+
+	/**
+	 * Plots the given pieces into the buffer in their original order. Pieces
+	 * found in the reusable points are copied from there. When the remaining
+	 * pieces are estimated to produce enough points, they are plotted in
+	 * parallel into separate buffers first and then appended in order, which
+	 * gives exactly the same points as plotting them one after another.
+	 */
+	private void plotPieces(final PointBuffer points, final PointBuffer reusable, final List<PieceJob> pieces) {
+		final boolean[] reused = new boolean[pieces.size()];
+		final PointBuffer[] plotted = new PointBuffer[pieces.size()];
+		long estimate = 0;
+
+		for (int i = 0; i < pieces.size(); i++) {
+			reused[i] = reusable != null && reusable.containsPiece(pieces.get(i).key);
+
+			if (!reused[i]) {
+				estimate += pieces.get(i).estimatedPoints;
 			}
 		}
-		return locations;
+
+		final int threshold = this.parallelThreshold;
+		if (threshold > 0 && estimate >= threshold && pieces.size() > 1) {
+			final long pointsPerTask = Math.max(MIN_POINTS_PER_TASK,
+					estimate / (this.forkJoinPool.getParallelism() * 4L));
+			this.forkJoinPool.invoke(new PlotPiecesTask(points.getWorld(), pieces, reused, plotted, 0,
+					pieces.size(), pointsPerTask));
+		}
+
+		for (int i = 0; i < pieces.size(); i++) {
+			final PieceJob piece = pieces.get(i);
+
+			if (reused[i]) {
+				points.copyPiece(reusable, piece.key);
+				continue;
+			}
+
+			final int start = points.size();
+			if (plotted[i] != null) {
+				points.addAll(plotted[i]);
+			} else {
+				piece.plotter.accept(points);
+			}
+			points.endPiece(piece.key, start);
+		}
+	}
+
+	/**
+	 * Plots the simplified outlines of a polygon shown to distant viewers and
+	 * attaches them to its points. A level only gets its own variant when its
+	 * tolerance drops at least a quarter of the vertices of the next finer
+	 * outline, as every variant is stored in addition to the exact points.
+	 */
+	private void plotSimplified(final PlotSettings settings, final PointBuffer points, final PointBuffer reusable,
+			final double[] cornersX, final double[] cornersZ, final double minY, final int height) {
+		final double[] significance = PolygonSimplifier.significance(cornersX, cornersZ);
+		int previousCount = cornersX.length;
+
+		for (int level = 1; level <= DetailLevel.OUTLINE_ONLY; level++) {
+			final int[] kept = PolygonSimplifier.simplify(significance, level * PolygonSimplifier.TOLERANCE_PER_LEVEL);
+			if (kept.length < 3 || kept.length * 4 > previousCount * 3) {
+				continue;
+			}
+
+			final double[] keptX = new double[kept.length];
+			final double[] keptZ = new double[kept.length];
+			for (int i = 0; i < kept.length; i++) {
+				keptX[i] = cornersX[kept[i]];
+				keptZ[i] = cornersZ[kept[i]];
+			}
+
+			final PointBuffer variant = new PointBuffer(points.getWorld());
+			final List<PieceJob> pieces = new ArrayList<>();
+			this.addSides(settings, pieces, keptX, keptZ, minY, height, settings.isPolygonLinesEnabled());
+			this.plotPieces(variant, reusable != null ? reusable.getSimplified(level) : null, pieces);
+			variant.seal();
+			points.setSimplified(level, variant);
+			previousCount = kept.length;
+		}
+	}
+
+	/**
+	 * Adds a piece for every side of a prism given by its bottom corners.
+	 */
+	private void addSides(final PlotSettings settings, final List<PieceJob> pieces, final double[] cornersX,
+			final double[] cornersZ, final double minY, final int height, final boolean horizontalLines) {
+		for (int i = 0; i < cornersX.length; ++i) {
+			final int next = i + 1 < cornersX.length ? i + 1 : 0;
+			final double x1 = cornersX[i];
+			final double z1 = cornersZ[i];
+			final double x2 = cornersX[next];
+			final double z2 = cornersZ[next];
+			final PieceKey key = new PieceKey(settings, PieceKey.Kind.SIDE, x1, z1, x2, z2, minY, height,
+					horizontalLines ? 1 : 0);
+			final int estimate = (int) sideEstimate(settings, Math.hypot(x2 - x1, z2 - z1), height, horizontalLines);
+
+			pieces.add(new PieceJob(key, estimate,
+					buffer -> this.plotSide(settings, buffer, x1, z1, x2, z2, minY, height, horizontalLines)));
+		}
+	}
+
+	/**
+	 * Plots one side of a prism: the bottom and top edge, the vertical edge and
+	 * both corners at its first corner and optionally horizontal lines at
+	 * every vertical gap.
+	 */
+	private void plotSide(final PlotSettings settings, final PointBuffer points, final double x1, final double z1,
+			final double x2, final double z2, final double minY, final int height, final boolean horizontalLines) {
+		final double topY = minY + height;
+
+		this.plotLine(settings, points, x1, minY, z1, x2, minY, z2, PointBuffer.TIER_EDGE);
+		this.plotLine(settings, points, x1, topY, z1, x2, topY, z2, PointBuffer.TIER_EDGE);
+		this.plotLine(settings, points, x1, minY, z1, x1, topY, z1, PointBuffer.TIER_PILLAR);
+		plotCorner(points, x1, minY, z1);
+		plotCorner(points, x1, topY, z1);
+
+		if (horizontalLines) {
+			for (double offset = settings.getVerticalGap(); offset < height; offset += settings.getVerticalGap()) {
+				this.plotLine(settings, points, x1, minY + offset, z1, x2, minY + offset, z2,
+						PointBuffer.TIER_FILL);
+			}
+		}
+	}
+
+	/**
+	 * Plots a corner as a single point segment of the highest priority tier.
+	 */
+	private static void plotCorner(final PointBuffer points, final double x, final double y, final double z) {
+		points.beginSegment(PointBuffer.TIER_CORNER);
+		points.add(x, y, z);
+	}
+
+	/**
+	 * Adds an ellipse with the given priority tier as a piece.
+	 */
+	private void addEllipse(final PlotSettings settings, final List<PieceJob> pieces, final double cx,
+			final double cy, final double cz, final double rx, final double ry, final double rz, final int tier) {
+		final PieceKey key = new PieceKey(settings, PieceKey.Kind.ELLIPSE, cx, cy, cz, rx, ry, rz, tier);
+		final double biggestR = Math.max(rx, Math.max(ry, rz));
+		final int estimate = ellipseSamples(settings, biggestR, rx + ry + rz - biggestR);
+
+		pieces.add(new PieceJob(key, estimate,
+				buffer -> this.plotEllipse(settings, buffer, cx, cy, cz, rx, ry, rz, tier)));
+	}
+
+	private void plotLine(final PlotSettings settings, final PointBuffer points, final double x1, final double y1,
+			final double z1, final double x2, final double y2, final double z2, final int tier) {
+		final double dx = x2 - x1;
+		final double dy = y2 - y1;
+		final double dz = z2 - z1;
+		final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		final int count = (int) (length / settings.getGapBetweenPoints()) + 1;
+
+		points.ensureCapacity(points.size() + count);
+		points.beginSegment(tier);
+
+		if (count == 1) {
+			points.add(x1, y1, z1);
+			return;
+		}
+
+		final double step = 1.0 / (count - 1);
+		for (int i = 0; i < count; ++i) {
+			final double t = i * step;
+			points.add(x1 + dx * t, y1 + dy * t, z1 + dz * t);
+		}
 	}
 
-	private List<Vector> plotLine(final Vector p1, final Vector p2) {
-		final List<Vector> vectors = new ArrayList<>();
-		final int points = (int) (p1.distance(p2) / this.config.getGapBetweenPoints()) + 1;
-		final double length = p1.distance(p2);
-		final double gap = length / (points - 1);
-		final Vector gapVector = p2.subtract(p1).normalize().multiply(gap);
+	/**
+	 * Plots an axis aligned ellipse with one zero radius. Points are spaced by
+	 * equal arc length, so flat ellipses get as many points as their actual
+	 * circumference needs rather than that of their biggest radius.
+	 */
+	private void plotEllipse(final PlotSettings settings, final PointBuffer points, final double cx,
+			final double cy, final double cz, final double rx, final double ry, final double rz, final int tier) {
+		points.beginSegment(tier);
+
+		if (rx == 0.0) {
+			this.plotPlanarEllipse(settings, points, cx, cy, cz, ry, rz, Wireframe.PLANE_YZ);
+		} else if (ry == 0.0) {
+			this.plotPlanarEllipse(settings, points, cx, cy, cz, rx, rz, Wireframe.PLANE_XZ);
+		} else if (rz == 0.0) {
+			this.plotPlanarEllipse(settings, points, cx, cy, cz, rx, ry, Wireframe.PLANE_XY);
+		} else {
+			points.add(cx, cy, cz);
+		}
+	}
+
+	/**
+	 * Plots an ellipse with the radii `ru` and `rv` along the two axes of the
+	 * given plane.
+	 *
+	 * Circles are taken straight from a unit circle table. Other ellipses are
+	 * walked along a four times finer unit circle table and a point is placed
+	 * every `perimeter / samples` blocks of walked distance.
+	 */
+	private void plotPlanarEllipse(final PlotSettings settings, final PointBuffer points, final double cx,
+			final double cy, final double cz, final double ru, final double rv, final int plane) {
+		final int samples = ellipseSamples(settings, ru, rv);
+
+		points.ensureCapacity(points.size() + samples);
+
+		if (ru == rv) {
+			final double[] circle = UnitCircleTable.get(UnitCircleTable.roundSamples(samples));
+
+			for (int i = 0; i < circle.length; i += 2) {
+				addPlanarPoint(points, cx, cy, cz, circle[i] * ru, circle[i + 1] * rv, plane);
+			}
+			return;
+		}
 
-		for (int i = 0; i < points; ++i) {
-			final Vector currentPoint = p1.add(gapVector.multiply(i));
-			vectors.add(currentPoint);
+		final double[] fine = UnitCircleTable.get(UnitCircleTable.roundSamples(samples * 4));
+		final int fineSamples = fine.length / 2;
+
+		double perimeter = 0.0;
+		for (int i = 0; i < fineSamples; i++) {
+			final int next = i + 1 < fineSamples ? i + 1 : 0;
+			final double du = (fine[next * 2] - fine[i * 2]) * ru;
+			final double dv = (fine[next * 2 + 1] - fine[i * 2 + 1]) * rv;
+			perimeter += Math.sqrt(du * du + dv * dv);
+		}
+
+		final double step = perimeter / samples;
+		double walked = 0.0;
+		int placed = 0;
+
+		for (int i = 0; i < fineSamples && placed < samples; i++) {
+			final int next = i + 1 < fineSamples ? i + 1 : 0;
+			final double u = fine[i * 2] * ru;
+			final double v = fine[i * 2 + 1] * rv;
+			final double du = fine[next * 2] * ru - u;
+			final double dv = fine[next * 2 + 1] * rv - v;
+			final double segment = Math.sqrt(du * du + dv * dv);
+
+			while (placed < samples && placed * step <= walked + segment) {
+				final double t = segment == 0.0 ? 0.0 : (placed * step - walked) / segment;
+				addPlanarPoint(points, cx, cy, cz, u + du * t, v + dv * t, plane);
+				placed++;
+			}
+			walked += segment;
 		}
-		return vectors;
 	}
 
-	private List<Vector> plotEllipse(final Vector center, final Vector radius) {
-		final List<Vector> vectors = new ArrayList<>();
-		final double biggestR = Math.max(radius.getX(), Math.max(radius.getY(), radius.getZ()));
-		final double circleCircumference = 2.0 * biggestR * 3.141592653589793;
-		final double deltaTheta = this.config.getGapBetweenPoints() / circleCircumference;
+	private static void addPlanarPoint(final PointBuffer points, final double cx, final double cy, final double cz,
+			final double u, final double v, final int plane) {
+		switch (plane) {
+		case Wireframe.PLANE_YZ:
+			points.add(cx, cy + u, cz + v);
+			break;
+		case Wireframe.PLANE_XZ:
+			points.add(cx + u, cy, cz + v);
+			break;
+		default:
+			points.add(cx + u, cy + v, cz);
+			break;
+		}
+	}
+
+	/**
+	 * Number of points an ellipse with the two given radii is plotted with,
+	 * based on its circumference (Ramanujan's approximation).
+	 */
+	private static int ellipseSamples(final PlotSettings settings, final double ru, final double rv) {
+		return ellipseSamples(ru, rv, settings.getGapBetweenPoints());
+	}
+
+	static int ellipseSamples(final double ru, final double rv, final double gap) {
+		final double circumference = Math.PI * (3.0 * (ru + rv) - Math.sqrt((3.0 * ru + rv) * (ru + 3.0 * rv)));
+		return Math.max((int) Math.ceil(circumference / gap), 1);
+	}
+
+	/**
+	 * Number of points {@link #plotPlanarEllipse} plots, circles are rounded
+	 * up to a shared unit circle table.
+	 */
+	private static int ellipsePoints(final PlotSettings settings, final double ru, final double rv) {
+		final int samples = ellipseSamples(settings, ru, rv);
+		return ru == rv ? UnitCircleTable.roundSamples(samples) : samples;
+	}
 
-		for (double i = 0.0; i < 1.0; i += deltaTheta) {
-			double x = center.getX();
-			double y = center.getY();
-			double z = center.getZ();
+	/**
+	 * Creates named fork/join threads, daemon threads like all of the common
+	 * pool.
+	 */
+	private static final class PlotThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
 
-			if (radius.getX() == 0.0) {
-				y = center.getY() + Math.cos(i * 2.0 * Math.PI) * radius.getY();
-				z = center.getZ() + Math.sin(i * 2.0 * Math.PI) * radius.getZ();
-			} else if (radius.getY() == 0.0) {
-				x = center.getX() + Math.cos(i * 2.0 * Math.PI) * radius.getX();
-				z = center.getZ() + Math.sin(i * 2.0 * Math.PI) * radius.getZ();
-			} else if (radius.getZ() == 0.0) {
-				x = center.getX() + Math.cos(i * 2.0 * Math.PI) * radius.getX();
-				y = center.getY() + Math.sin(i * 2.0 * Math.PI) * radius.getY();
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+			final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("WESV Plot Worker #" + this.count.incrementAndGet());
+			return thread;
+		}
+	}
+
+	/**
+	 * Piece of a selection that can be plotted independently of all others.
+	 */
+	private static final class PieceJob {
+
+		private final PieceKey key;
+		private final int estimatedPoints;
+		private final Consumer<PointBuffer> plotter;
+
+		private PieceJob(final PieceKey key, final int estimatedPoints, final Consumer<PointBuffer> plotter) {
+			this.key = key;
+			this.estimatedPoints = estimatedPoints;
+			this.plotter = plotter;
+		}
+	}
+
+	/**
+	 * Plots a range of pieces into separate buffers, splitting the range until
+	 * every task plots about the given amount of points.
+	 */
+	private static final class PlotPiecesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient World world;
+		private final transient List<PieceJob> pieces;
+		private final boolean[] reused;
+		private final transient PointBuffer[] plotted;
+		private final int from;
+		private final int to;
+		private final long pointsPerTask;
+
+		private PlotPiecesTask(final World world, final List<PieceJob> pieces, final boolean[] reused,
+				final PointBuffer[] plotted, final int from, final int to, final long pointsPerTask) {
+			this.world = world;
+			this.pieces = pieces;
+			this.reused = reused;
+			this.plotted = plotted;
+			this.from = from;
+			this.to = to;
+			this.pointsPerTask = pointsPerTask;
+		}
+
+		@Override
+		protected void compute() {
+			long estimate = 0;
+			for (int i = this.from; i < this.to; i++) {
+				if (!this.reused[i]) {
+					estimate += this.pieces.get(i).estimatedPoints;
+				}
+			}
+
+			if (this.to - this.from == 1 || estimate <= this.pointsPerTask) {
+				for (int i = this.from; i < this.to; i++) {
+					if (!this.reused[i]) {
+						final PieceJob piece = this.pieces.get(i);
+						final PointBuffer buffer = new PointBuffer(this.world, piece.estimatedPoints);
+						piece.plotter.accept(buffer);
+						this.plotted[i] = buffer;
+					}
+				}
+				return;
 			}
 
-			final Vector loc = new Vector(x, y, z);
-			vectors.add(loc);
+			final int middle = (this.from + this.to) >>> 1;
+			invokeAll(new PlotPiecesTask(this.world, this.pieces, this.reused, this.plotted, this.from, middle,
+					this.pointsPerTask),
+					new PlotPiecesTask(this.world, this.pieces, this.reused, this.plotted, middle, this.to,
+							this.pointsPerTask));
 		}
-		return vectors;
 	}
 }
@@ -0,0 +1,318 @@
+package com.rojel.wesv;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import com.sk89q.worldedit.regions.Region;
+
+/**
+ * Computes selection shapes off the server thread.
+ *
+ * Every request works on a snapshot of the region, the resolved world and the
+ * plot settings taken on the server thread. Finished point buffers are handed
+ * back to the server thread and replace the shown points in one step, so the
+ * previous points keep being rendered until the new ones are ready. A newer
+ * request for the same player supersedes and cancels any pending one.
+ *
+ * Requests that do not fit into the queue are retried on the next tick
+ * rather than computed on the server thread.
+ *
+ * All methods have to be called from the server thread.
+ */
+public class ShapeWorkerPool {
+
+	/**
+	 * Maximum number of queued computations, further requests are retried on
+	 * the next tick.
+	 */
+	private static final int QUEUE_CAPACITY = 256;
+
+	private final WorldEditSelectionVisualizer plugin;
+	private final ShapeHelper shapeHelper;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Pending computation of every player.
+	 */
+	private final Map<UUID, Future<?>> pending = new HashMap<>();
+
+	/**
+	 * Id of the latest request of every player with a pending computation.
+	 */
+	private final Map<UUID, Long> latestRequests = new HashMap<>();
+
+	/**
+	 * Snapshot the points shown to every player were computed from.
+	 */
+	private final Map<UUID, ShownShape> shownShapes = new HashMap<>();
+
+	private long nextRequestId;
+
+	/**
+	 * Creates the worker pool.
+	 *
+	 * @param plugin
+	 *            WESV plugin instance.
+	 * @param shapeHelper
+	 *            Shape helper used to plot the regions.
+	 * @param threads
+	 *            Number of worker threads.
+	 */
+	public ShapeWorkerPool(final WorldEditSelectionVisualizer plugin, final ShapeHelper shapeHelper,
+			final int threads) {
+		this.plugin = plugin;
+		this.shapeHelper = shapeHelper;
+
+		final int poolSize = Math.max(threads, 1);
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(QUEUE_CAPACITY), new WorkerThreadFactory(),
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Starts computing the shape of the given region for the given player,
+	 * replacing any computation still pending for that player.
+	 *
+	 * Empty selections are applied immediately. Everything else, including
+	 * choosing the settings and looking up cached shapes, happens on the
+	 * worker threads.
+	 *
+	 * @param player
+	 *            Player to compute the shape for.
+	 * @param region
+	 *            Region currently selected by the player, may be null.
+	 */
+	public void compute(final Player player, final Region region) {
+		final UUID uuid = player.getUniqueId();
+		this.cancel(uuid);
+
+		final RegionFingerprint fingerprint = RegionFingerprint.of(region);
+		if (fingerprint == null) {
+			this.plugin.setParticlesForPlayer(player, null);
+			return;
+		}
+
+		final Region snapshot = region.clone();
+		final World world = this.plugin.getServer().getWorld(region.getWorld().getName());
+		final PointBuffer previous = this.plugin.getPlayerParticleMap().get(uuid);
+		final PlotSettings configured = new PlotSettings(this.plugin.getCustomConfig());
+		final int budget = this.plugin.getCustomConfig().getMaxParticles();
+		final long requestId = this.nextRequestId++;
+
+		this.latestRequests.put(uuid, requestId);
+		this.submitRequest(uuid, requestId, () -> {
+			try {
+				final PlotSettings settings = ShapeHelper.chooseSettings(snapshot, configured, budget);
+				PointBuffer points = this.shapeHelper.getCachedPoints(fingerprint, settings);
+
+				if (points == null) {
+					points = this.shapeHelper.plotPoints(snapshot, world, fingerprint, settings, previous);
+				}
+				this.publish(uuid, requestId, new ShownShape(snapshot, world, fingerprint, settings, points));
+			} catch (final RuntimeException e) {
+				this.plugin.getLogger().log(Level.WARNING, "An error occured while computing a selection shape", e);
+			}
+		});
+	}
+
+	/**
+	 * Queues the computation of a request. If the queue is full, it is tried
+	 * again on the next tick unless a newer request of the player replaced it
+	 * meanwhile.
+	 */
+	private void submitRequest(final UUID uuid, final long requestId, final Runnable computation) {
+		try {
+			this.pending.put(uuid, this.executor.submit(computation));
+		} catch (final RejectedExecutionException e) {
+			if (!this.plugin.isEnabled()) {
+				return;
+			}
+
+			this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+				final Long latest = this.latestRequests.get(uuid);
+				if (latest != null && latest == requestId && !this.executor.isShutdown()) {
+					this.submitRequest(uuid, requestId, computation);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Replaces the plotted points shown to the given player by the wireframe
+	 * of the same region, which only holds its lines and ellipses. Nothing
+	 * changes if a computation is pending, other points have been shown
+	 * meanwhile or the wireframe would not be any smaller.
+	 *
+	 * The wireframe is described on the worker threads from the snapshot and
+	 * the settings the shown points were computed from, not from the current
+	 * selection and configuration, and the fade out delay is not restarted.
+	 *
+	 * @param player
+	 *            Player the points are shown to.
+	 * @param shown
+	 *            Plotted points that have been shown to the player.
+	 */
+	public void compact(final Player player, final PointBuffer shown) {
+		final UUID uuid = player.getUniqueId();
+		final ShownShape source = this.shownShapes.get(uuid);
+
+		if (source == null || source.points != shown || this.latestRequests.containsKey(uuid)
+				|| this.plugin.getPlayerParticleMap().get(uuid) != shown) {
+			return;
+		}
+
+		// the gaps a selection was coarsened to fit the budget with are kept
+		final PlotSettings settings = source.settings.toWireframe();
+
+		try {
+			this.executor.submit(() -> {
+				try {
+					PointBuffer wireframe = this.shapeHelper.getCachedPoints(source.fingerprint, settings);
+
+					if (wireframe == null) {
+						wireframe = this.shapeHelper.plotPoints(source.region, source.world, source.fingerprint,
+								settings, null);
+					}
+
+					if (!wireframe.isEmpty() && wireframe.estimateMemoryUsage() < shown.estimateMemoryUsage()) {
+						this.publishCompacted(uuid, shown,
+								new ShownShape(source.region, source.world, source.fingerprint, settings,
+										wireframe));
+					}
+				} catch (final RuntimeException e) {
+					this.plugin.getLogger().log(Level.WARNING, "An error occured while computing a selection shape",
+							e);
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			// the plotted points simply stay, compacting is tried again when they are shown next
+		}
+	}
+
+	/**
+	 * Runs a task on the worker threads.
+	 *
+	 * @param task
+	 *            Task only reading sealed or snapshotted data.
+	 * @return Returns the future of the task.
+	 * @throws RejectedExecutionException
+	 *             If the queue is full or the pool has been shut down.
+	 */
+	public Future<?> submit(final Runnable task) {
+		return this.executor.submit(task);
+	}
+
+	/**
+	 * Cancels the pending computation of the given player, if any.
+	 *
+	 * @param uuid
+	 *            UUID of the player.
+	 */
+	public void cancel(final UUID uuid) {
+		final Future<?> future = this.pending.remove(uuid);
+		this.latestRequests.remove(uuid);
+		this.shownShapes.remove(uuid);
+
+		if (future != null) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Stops all worker threads, including those plotting in parallel, pending
+	 * computations are discarded.
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+		this.shapeHelper.shutdown();
+		this.pending.clear();
+		this.latestRequests.clear();
+		this.shownShapes.clear();
+	}
+
+	private void publish(final UUID uuid, final long requestId, final ShownShape shape) {
+		if (!this.plugin.isEnabled()) {
+			return;
+		}
+
+		this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+			final Long latest = this.latestRequests.get(uuid);
+			if (latest == null || latest != requestId) {
+				return;
+			}
+
+			this.latestRequests.remove(uuid);
+			this.pending.remove(uuid);
+
+			final Player player = this.plugin.getServer().getPlayer(uuid);
+			if (player != null) {
+				this.shownShapes.put(uuid, shape);
+				this.plugin.setParticlesForPlayer(player, shape.points);
+			}
+		});
+	}
+
+	private void publishCompacted(final UUID uuid, final PointBuffer shown, final ShownShape shape) {
+		if (!this.plugin.isEnabled()) {
+			return;
+		}
+
+		this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+			if (this.latestRequests.containsKey(uuid) || this.plugin.getPlayerParticleMap().get(uuid) != shown) {
+				return;
+			}
+
+			this.shownShapes.put(uuid, shape);
+			this.plugin.getPlayerParticleMap().put(uuid, shape.points);
+		});
+	}
+
+	/**
+	 * Points shown to a player along with the snapshot and the settings they
+	 * were computed from.
+	 */
+	private static final class ShownShape {
+
+		private final Region region;
+		private final World world;
+		private final RegionFingerprint fingerprint;
+		private final PlotSettings settings;
+		private final PointBuffer points;
+
+		private ShownShape(final Region region, final World world, final RegionFingerprint fingerprint,
+				final PlotSettings settings, final PointBuffer points) {
+			this.region = region;
+			this.world = world;
+			this.fingerprint = fingerprint;
+			this.settings = settings;
+			this.points = points;
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so they never block a server shutdown.
+	 */
+	private static final class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "WESV Shape Worker #" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
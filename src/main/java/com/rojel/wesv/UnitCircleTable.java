@@ -0,0 +1,94 @@
+package com.rojel.wesv;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared tables of evenly spaced points on the unit circle, so plotting an
+ * ellipse is a scale and translate of precomputed cosine and sine pairs
+ * instead of two trigonometric calls per point.
+ *
+ * Sample counts are rounded up to a coarse series (exact up to 64, then 16
+ * steps per power of two), which keeps the number of distinct tables small
+ * while adding at most one sixteenth of extra points.
+ */
+public final class UnitCircleTable {
+
+	/**
+	 * Sample counts up to this value are used as they are.
+	 */
+	private static final int EXACT_SAMPLES = 64;
+
+	/**
+	 * Maximum number of samples kept in all cached tables together.
+	 */
+	private static final int MAX_CACHED_SAMPLES = 1 << 18;
+
+	/**
+	 * Cached tables by sample count in access order.
+	 */
+	private static final LinkedHashMap<Integer, double[]> TABLES = new LinkedHashMap<>(64, 0.75f, true);
+
+	private static int cachedSamples;
+
+	private UnitCircleTable() {
+	}
+
+	/**
+	 * Rounds a sample count up to one a table is shared for.
+	 *
+	 * @param samples
+	 *            Minimum number of samples needed.
+	 * @return Returns the rounded sample count, at least 1.
+	 */
+	public static int roundSamples(final int samples) {
+		if (samples <= EXACT_SAMPLES) {
+			return Math.max(samples, 1);
+		}
+
+		final int step = Integer.highestOneBit(samples) >> 4;
+		return (samples + step - 1) / step * step;
+	}
+
+	/**
+	 * Retrieves the table for the given sample count, computing it if needed.
+	 *
+	 * @param samples
+	 *            Sample count as returned by {@link #roundSamples(int)}.
+	 * @return Returns `cos, sin` pairs of the angles `2 * PI * i / samples`,
+	 *         the array must not be modified.
+	 */
+	public static double[] get(final int samples) {
+		synchronized (TABLES) {
+			final double[] table = TABLES.get(samples);
+			if (table != null) {
+				return table;
+			}
+		}
+
+		final double[] table = new double[samples * 2];
+		for (int i = 0; i < samples; i++) {
+			final double theta = 2.0 * Math.PI * i / samples;
+			table[i * 2] = Math.cos(theta);
+			table[i * 2 + 1] = Math.sin(theta);
+		}
+
+		synchronized (TABLES) {
+			if (TABLES.put(samples, table) == null) {
+				cachedSamples += samples;
+			}
+
+			final Iterator<Map.Entry<Integer, double[]>> iterator = TABLES.entrySet().iterator();
+			while (cachedSamples > MAX_CACHED_SAMPLES && iterator.hasNext()) {
+				final Map.Entry<Integer, double[]> eldest = iterator.next();
+
+				if (eldest.getValue() != table) {
+					cachedSamples -= eldest.getKey();
+					iterator.remove();
+				}
+			}
+		}
+		return table;
+	}
+}
@@ -0,0 +1,92 @@
+package com.rojel.wesv;
+
+import org.bukkit.Location;
+
+/**
+ * Snapshot of the eye position and view direction of a player, used to skip
+ * segments that cannot be on screen.
+ *
+ * The cone is a conservative approximation of the view frustum: a segment is
+ * visible if its bounding sphere reaches into the cone around the view
+ * direction.
+ */
+public final class ViewCone {
+
+	/**
+	 * Half opening angle (in degrees) covering the screen of the default field
+	 * of view on wide screens, including its corners.
+	 */
+	public static final double BASE_HALF_ANGLE = 60.0;
+
+	private final double eyeX;
+	private final double eyeY;
+	private final double eyeZ;
+	private final double dirX;
+	private final double dirY;
+	private final double dirZ;
+	private final double halfAngle;
+
+	/**
+	 * Takes a snapshot of the given eye location.
+	 *
+	 * @param eye
+	 *            Eye location of the player, including its rotation.
+	 * @param margin
+	 *            Angle (in degrees) added to {@link #BASE_HALF_ANGLE}.
+	 */
+	public ViewCone(final Location eye, final double margin) {
+		final double yaw = Math.toRadians(eye.getYaw());
+		final double pitch = Math.toRadians(eye.getPitch());
+		final double horizontal = Math.cos(pitch);
+
+		this.eyeX = eye.getX();
+		this.eyeY = eye.getY();
+		this.eyeZ = eye.getZ();
+		this.dirX = -horizontal * Math.sin(yaw);
+		this.dirY = -Math.sin(pitch);
+		this.dirZ = horizontal * Math.cos(yaw);
+		this.halfAngle = Math.toRadians(Math.min(BASE_HALF_ANGLE + margin, 180.0));
+	}
+
+	/**
+	 * Checks whether a sphere reaches into this cone.
+	 *
+	 * @param x
+	 *            X coordinate of the center.
+	 * @param y
+	 *            Y coordinate of the center.
+	 * @param z
+	 *            Z coordinate of the center.
+	 * @param radius
+	 *            Radius of the sphere.
+	 * @return Returns true if any part of the sphere may be visible.
+	 */
+	public boolean intersectsSphere(final double x, final double y, final double z, final double radius) {
+		final double vx = x - this.eyeX;
+		final double vy = y - this.eyeY;
+		final double vz = z - this.eyeZ;
+		final double distance = Math.sqrt(vx * vx + vy * vy + vz * vz);
+
+		if (distance <= radius) {
+			return true;
+		}
+
+		final double cos = (vx * this.dirX + vy * this.dirY + vz * this.dirZ) / distance;
+		final double angle = Math.acos(Math.max(-1.0, Math.min(1.0, cos)));
+		return angle <= this.halfAngle + Math.asin(radius / distance);
+	}
+
+	/**
+	 * Checks whether the bounding sphere of a segment reaches into this cone.
+	 *
+	 * @param points
+	 *            Sealed point buffer.
+	 * @param segment
+	 *            Index of the segment.
+	 * @return Returns true if any point of the segment may be visible.
+	 */
+	public boolean intersectsSegment(final PointBuffer points, final int segment) {
+		return this.intersectsSphere(points.getSegmentCenterX(segment), points.getSegmentCenterY(segment),
+				points.getSegmentCenterZ(segment), points.getSegmentRadius(segment));
+	}
+}
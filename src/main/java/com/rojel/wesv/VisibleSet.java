@@ -0,0 +1,288 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+
+/**
+ * Points collected for a single viewer, in the order they are sent.
+ *
+ * Collecting the points in range of a viewer walks the segment grid, tests
+ * the view cone and culls every candidate segment. The result only changes
+ * when the viewer moves or turns noticeably, or when the shown points, their
+ * occlusion mask or the chunk clip change, so it is kept between passes and
+ * a viewer standing still is only sent the stored points again.
+ *
+ * Points of the buffer are stored as indices, points of its wireframe as
+ * packed coordinates since they are generated on demand. A cursor keeps track
+ * of the points already sent, so sending can be spread over several ticks.
+ */
+public final class VisibleSet {
+
+	private PointBuffer points;
+	private long[] occluded;
+	private double anchorX;
+	private double anchorY;
+	private double anchorZ;
+	private float yaw;
+	private float pitch;
+	private boolean collected;
+
+	/**
+	 * Indices of the collected points of the buffer.
+	 */
+	private int[] indices = new int[256];
+	private int indexCount;
+
+	/**
+	 * Collected points of the wireframe, `x, y, z` for every point.
+	 */
+	private double[] wireframeCoords = new double[0];
+	private int wireframeCount;
+
+	/**
+	 * Next point to send: its slice and its position in the collected
+	 * points, followed by the last slice that is due.
+	 */
+	private int cursorSlice;
+	private int cursorPosition;
+	private int dueSlice = -1;
+	private int slices = 1;
+
+	/**
+	 * Checks whether the collected points can still be sent to the viewer.
+	 *
+	 * @param points
+	 *            Points to show to the viewer.
+	 * @param occluded
+	 *            Current occlusion mask of the points, null if none is used.
+	 * @param x
+	 *            X coordinate of the viewer.
+	 * @param y
+	 *            Y coordinate of the viewer.
+	 * @param z
+	 *            Z coordinate of the viewer.
+	 * @param yaw
+	 *            Yaw of the viewer.
+	 * @param pitch
+	 *            Pitch of the viewer.
+	 * @param threshold
+	 *            Distance (in blocks) the viewer may have moved since the
+	 *            points were collected, 0 if they are always collected again.
+	 * @param maxTurn
+	 *            Angle (in degrees) the viewer may have turned since the points
+	 *            were collected.
+	 * @return Returns true if the points do not have to be collected again.
+	 */
+	public boolean isCurrent(final PointBuffer points, final long[] occluded, final double x, final double y,
+			final double z, final float yaw, final float pitch, final double threshold, final double maxTurn) {
+		if (!this.collected || threshold <= 0 || points != this.points || occluded != this.occluded) {
+			return false;
+		}
+
+		final double dx = x - this.anchorX;
+		final double dy = y - this.anchorY;
+		final double dz = z - this.anchorZ;
+		if (dx * dx + dy * dy + dz * dz > threshold * threshold) {
+			return false;
+		}
+
+		final double turnYaw = Math.abs(((yaw - this.yaw) % 360.0 + 540.0) % 360.0 - 180.0);
+		return turnYaw <= maxTurn && Math.abs(pitch - this.pitch) <= maxTurn;
+	}
+
+	/**
+	 * Drops the collected points so new ones can be collected for the given
+	 * state of the viewer.
+	 *
+	 * @param points
+	 *            Points shown to the viewer.
+	 * @param occluded
+	 *            Current occlusion mask of the points, null if none is used.
+	 * @param x
+	 *            X coordinate of the viewer.
+	 * @param y
+	 *            Y coordinate of the viewer.
+	 * @param z
+	 *            Z coordinate of the viewer.
+	 * @param yaw
+	 *            Yaw of the viewer.
+	 * @param pitch
+	 *            Pitch of the viewer.
+	 */
+	public void reset(final PointBuffer points, final long[] occluded, final double x, final double y,
+			final double z, final float yaw, final float pitch) {
+		this.points = points;
+		this.occluded = occluded;
+		this.anchorX = x;
+		this.anchorY = y;
+		this.anchorZ = z;
+		this.yaw = yaw;
+		this.pitch = pitch;
+		this.collected = true;
+		this.indexCount = 0;
+		this.wireframeCount = 0;
+		this.rewind();
+	}
+
+	/**
+	 * Drops the collected points, nothing is sent until they are collected
+	 * again.
+	 */
+	public void invalidate() {
+		this.collected = false;
+		this.points = null;
+		this.occluded = null;
+		this.indexCount = 0;
+		this.wireframeCount = 0;
+		this.rewind();
+	}
+
+	/**
+	 * Adds a point of the buffer.
+	 *
+	 * @param index
+	 *            Index of the point in the buffer.
+	 */
+	public void addPoint(final int index) {
+		if (this.indexCount == this.indices.length) {
+			this.indices = Arrays.copyOf(this.indices, this.indexCount * 2);
+		}
+		this.indices[this.indexCount++] = index;
+	}
+
+	/**
+	 * Adds a point of the wireframe.
+	 *
+	 * @param x
+	 *            X coordinate of the point.
+	 * @param y
+	 *            Y coordinate of the point.
+	 * @param z
+	 *            Z coordinate of the point.
+	 */
+	public void addWireframePoint(final double x, final double y, final double z) {
+		if (this.wireframeCount * 3 == this.wireframeCoords.length) {
+			this.wireframeCoords = Arrays.copyOf(this.wireframeCoords, Math.max(96, this.wireframeCount * 6));
+		}
+
+		final int offset = this.wireframeCount++ * 3;
+		this.wireframeCoords[offset] = x;
+		this.wireframeCoords[offset + 1] = y;
+		this.wireframeCoords[offset + 2] = z;
+	}
+
+	/**
+	 * Starts sending the collected points from the first one again.
+	 */
+	public void rewind() {
+		this.cursorSlice = 0;
+		this.cursorPosition = 0;
+		this.dueSlice = -1;
+	}
+
+	/**
+	 * Marks the points of every slice up to the given one as due. The points
+	 * are dealt to the slices in turn, so every slice gets an even share of
+	 * each priority tier.
+	 *
+	 * @param slice
+	 *            Index of the last slice to send.
+	 * @param slices
+	 *            Number of slices the points are split into, 1 to send all
+	 *            of them at once.
+	 */
+	public void due(final int slice, final int slices) {
+		this.dueSlice = slice;
+		this.slices = slices;
+	}
+
+	/**
+	 * Retrieves the number of due points that have not been sent yet.
+	 *
+	 * @return Returns the number of pending particles.
+	 */
+	public int getPending() {
+		final int size = this.size();
+		int pending = 0;
+
+		for (int slice = this.cursorSlice; slice <= this.dueSlice; slice++) {
+			final int from = slice == this.cursorSlice ? this.cursorPosition : slice;
+			if (from < size) {
+				pending += (size - from + this.slices - 1) / this.slices;
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * Sends the particles of pending points in slice order, the rest stays
+	 * pending.
+	 *
+	 * @param emitter
+	 *            Emitter spawning the particles for the viewer.
+	 * @param limit
+	 *            Maximum number of particles to send.
+	 * @return Returns the number of particles sent.
+	 */
+	public int send(final ParticleEmitter emitter, final int limit) {
+		final int size = this.size();
+		int sent = 0;
+
+		while (sent < limit && this.cursorSlice <= this.dueSlice) {
+			if (this.cursorPosition >= size) {
+				this.cursorSlice++;
+				this.cursorPosition = this.cursorSlice;
+				continue;
+			}
+
+			// wireframe points continue the numbering of the buffer points
+			if (this.cursorPosition < this.indexCount) {
+				final int index = this.indices[this.cursorPosition];
+				emitter.emit(this.points.getX(index), this.points.getY(index), this.points.getZ(index));
+			} else {
+				final int offset = (this.cursorPosition - this.indexCount) * 3;
+				emitter.emit(this.wireframeCoords[offset], this.wireframeCoords[offset + 1],
+						this.wireframeCoords[offset + 2]);
+			}
+
+			this.cursorPosition += this.slices;
+			sent++;
+		}
+		return sent;
+	}
+
+	/**
+	 * Retrieves the X coordinate of the viewer the points were collected for.
+	 *
+	 * @return Returns the X coordinate.
+	 */
+	public double getAnchorX() {
+		return this.anchorX;
+	}
+
+	/**
+	 * Retrieves the Y coordinate of the viewer the points were collected for.
+	 *
+	 * @return Returns the Y coordinate.
+	 */
+	public double getAnchorY() {
+		return this.anchorY;
+	}
+
+	/**
+	 * Retrieves the Z coordinate of the viewer the points were collected for.
+	 *
+	 * @return Returns the Z coordinate.
+	 */
+	public double getAnchorZ() {
+		return this.anchorZ;
+	}
+
+	/**
+	 * Retrieves the number of collected points.
+	 *
+	 * @return Returns the number of particles sent per pass.
+	 */
+	public int size() {
+		return this.indexCount + this.wireframeCount;
+	}
+}
@@ -1,11 +1,31 @@
 package com.rojel.wesv;
 
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.event.extent.EditSessionEvent;
+import com.sk89q.worldedit.util.eventbus.Subscribe;
 
 public class WesvListener implements Listener {
 
@@ -47,4 +67,109 @@ public class WesvListener implements Listener {
 	public void onPlayerQuit(final PlayerQuitEvent event) {
 		plugin.removePlayer(event.getPlayer());
 	}
+
+	@EventHandler
+	public void onChunkLoad(final ChunkLoadEvent event) {
+		ChunkClip.chunkChanged(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+		this.plugin.getOcclusionCache().invalidateChunk(event.getChunk().getWorld(), event.getChunk().getX(),
+				event.getChunk().getZ());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPlace(final BlockPlaceEvent event) {
+		final Block block = event.getBlock();
+		this.plugin.getOcclusionCache().invalidateBlock(block.getWorld(), block.getX(), block.getY(), block.getZ());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(final BlockBreakEvent event) {
+		final Block block = event.getBlock();
+		this.plugin.getOcclusionCache().invalidateBlock(block.getWorld(), block.getX(), block.getY(), block.getZ());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonExtend(final BlockPistonExtendEvent event) {
+		this.invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonRetract(final BlockPistonRetractEvent event) {
+		this.invalidateMoved(event.getBlock(), event.getBlocks(), event.getDirection());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityExplode(final EntityExplodeEvent event) {
+		for (final Block block : event.blockList()) {
+			this.invalidateBlock(block, 0, 0, 0);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockExplode(final BlockExplodeEvent event) {
+		for (final Block block : event.blockList()) {
+			this.invalidateBlock(block, 0, 0, 0);
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFromTo(final BlockFromToEvent event) {
+		this.invalidateBlock(event.getToBlock(), 0, 0, 0);
+	}
+
+	/**
+	 * Invalidates the occlusion masks of the world an edit session changes.
+	 * The session is created before its changes are made, possibly off the
+	 * server thread, so the masks are invalidated on the next tick.
+	 *
+	 * @param event
+	 *            Event fired by WorldEdit for every stage of a new edit
+	 *            session.
+	 */
+	@Subscribe
+	public void onEditSession(final EditSessionEvent event) {
+		if (event.getWorld() == null || event.getStage() != EditSession.Stage.BEFORE_CHANGE
+				|| !this.plugin.isEnabled()) {
+			return;
+		}
+
+		final String worldName = event.getWorld().getName();
+		this.plugin.getServer().getScheduler().runTask(this.plugin, () -> {
+			final World world = this.plugin.getServer().getWorld(worldName);
+			if (world != null) {
+				this.plugin.getOcclusionCache().invalidateWorld(world);
+			}
+		});
+	}
+
+	@EventHandler
+	public void onChunkUnload(final ChunkUnloadEvent event) {
+		ChunkClip.chunkChanged(event.getChunk().getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnload(final WorldUnloadEvent event) {
+		ChunkClip.forgetWorld(event.getWorld());
+	}
+
+	/**
+	 * Invalidates the positions of a piston head and the blocks it moves,
+	 * before and after they are moved one block in either direction.
+	 */
+	private void invalidateMoved(final Block piston, final List<Block> blocks, final BlockFace direction) {
+		final int dx = direction.getModX();
+		final int dy = direction.getModY();
+		final int dz = direction.getModZ();
+
+		this.invalidateBlock(piston, dx, dy, dz);
+		for (final Block block : blocks) {
+			this.invalidateBlock(block, -dx, -dy, -dz);
+			this.invalidateBlock(block, 0, 0, 0);
+			this.invalidateBlock(block, dx, dy, dz);
+		}
+	}
+
+	private void invalidateBlock(final Block block, final int offsetX, final int offsetY, final int offsetZ) {
+		this.plugin.getOcclusionCache().invalidateBlock(block.getWorld(), block.getX() + offsetX,
+				block.getY() + offsetY, block.getZ() + offsetZ);
+	}
 }
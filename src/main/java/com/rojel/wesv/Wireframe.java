@@ -0,0 +1,707 @@
+package com.rojel.wesv;
+
+import java.util.Arrays;
+
+/**
+ * Parametric description of a selection as straight lines and axis aligned
+ * ellipses, sampled for every viewer separately.
+ *
+ * Lines and horizontal rings can be stacked: a stack stands for copies of
+ * the same line or ring at a fixed vertical spacing, so the fill lines of a
+ * prism or the rings of an ellipsoid take a single entry and the size of a
+ * wireframe does not depend on the size of the selection.
+ *
+ * Before sampling, every line and ellipse is clipped against the sphere the
+ * viewer sees particles in, so the cost of rendering scales with the visible
+ * part of a selection instead of its size. Lines are sampled at the same
+ * positions as {@link ShapeHelper} would plot them, ellipses at evenly spaced
+ * angles. Like segments, lines and ellipses have a priority tier and are
+ * sampled tier by tier, highest priority first.
+ */
+public final class Wireframe {
+
+	/**
+	 * Planes an ellipse can lie in, named by its two axes.
+	 */
+	public static final int PLANE_YZ = 0;
+	public static final int PLANE_XZ = 1;
+	public static final int PLANE_XY = 2;
+
+	/**
+	 * Start and end of the first line of every stack, `x1, y1, z1, x2, y2,
+	 * z2`.
+	 */
+	private double[] lines = new double[6 * 8];
+
+	/**
+	 * Number of points on every whole line.
+	 */
+	private int[] lineSamples = new int[8];
+
+	/**
+	 * Number of lines in every stack and the vertical distance between two of
+	 * them.
+	 */
+	private int[] lineCopies = new int[8];
+	private double[] lineSpacings = new double[8];
+
+	private byte[] lineTiers = new byte[8];
+	private int lineCount;
+
+	/**
+	 * Every ellipse stack, `cx, cy, cz, ru, rv, gap, spacing, profile`. The
+	 * ellipse with index `i` of a stack lies `i * spacing` above the center
+	 * and its radii are scaled by `sqrt(1 - (i * spacing / profile)^2)`, or
+	 * kept as they are if the profile is 0.
+	 */
+	private double[] ellipses = new double[8 * 8];
+
+	/**
+	 * Index of the first and number of ellipses of every stack.
+	 */
+	private int[] ellipseFirsts = new int[8];
+	private int[] ellipseCopies = new int[8];
+
+	private byte[] ellipsePlanes = new byte[8];
+	private byte[] ellipseTiers = new byte[8];
+	private int ellipseCount;
+
+	/**
+	 * Adds a straight line.
+	 *
+	 * @param x1
+	 *            X coordinate of the start.
+	 * @param y1
+	 *            Y coordinate of the start.
+	 * @param z1
+	 *            Z coordinate of the start.
+	 * @param x2
+	 *            X coordinate of the end.
+	 * @param y2
+	 *            Y coordinate of the end.
+	 * @param z2
+	 *            Z coordinate of the end.
+	 * @param samples
+	 *            Number of points on the whole line.
+	 * @param tier
+	 *            Priority tier of the line, see {@link PointBuffer}.
+	 */
+	public void addLine(final double x1, final double y1, final double z1, final double x2, final double y2,
+			final double z2, final int samples, final int tier) {
+		this.addLineStack(x1, y1, z1, x2, y2, z2, samples, 0.0, 1, tier);
+	}
+
+	/**
+	 * Adds copies of a straight line stacked at a fixed vertical spacing.
+	 *
+	 * @param x1
+	 *            X coordinate of the start of the first line.
+	 * @param y1
+	 *            Y coordinate of the start of the first line.
+	 * @param z1
+	 *            Z coordinate of the start of the first line.
+	 * @param x2
+	 *            X coordinate of the end of the first line.
+	 * @param y2
+	 *            Y coordinate of the end of the first line.
+	 * @param z2
+	 *            Z coordinate of the end of the first line.
+	 * @param samples
+	 *            Number of points on every whole line.
+	 * @param spacing
+	 *            Vertical distance between two lines.
+	 * @param copies
+	 *            Number of lines.
+	 * @param tier
+	 *            Priority tier of the lines, see {@link PointBuffer}.
+	 */
+	public void addLineStack(final double x1, final double y1, final double z1, final double x2, final double y2,
+			final double z2, final int samples, final double spacing, final int copies, final int tier) {
+		if (copies <= 0) {
+			return;
+		}
+
+		if (this.lineCount == this.lineSamples.length) {
+			this.lines = Arrays.copyOf(this.lines, this.lines.length * 2);
+			this.lineSamples = Arrays.copyOf(this.lineSamples, this.lineCount * 2);
+			this.lineCopies = Arrays.copyOf(this.lineCopies, this.lineCount * 2);
+			this.lineSpacings = Arrays.copyOf(this.lineSpacings, this.lineCount * 2);
+			this.lineTiers = Arrays.copyOf(this.lineTiers, this.lineCount * 2);
+		}
+
+		final int l = this.lineCount * 6;
+		this.lines[l] = x1;
+		this.lines[l + 1] = y1;
+		this.lines[l + 2] = z1;
+		this.lines[l + 3] = x2;
+		this.lines[l + 4] = y2;
+		this.lines[l + 5] = z2;
+		this.lineSamples[this.lineCount] = samples;
+		this.lineCopies[this.lineCount] = copies;
+		this.lineSpacings[this.lineCount] = spacing;
+		this.lineTiers[this.lineCount] = (byte) tier;
+		this.lineCount++;
+	}
+
+	/**
+	 * Adds an axis aligned ellipse.
+	 *
+	 * @param cx
+	 *            X coordinate of the center.
+	 * @param cy
+	 *            Y coordinate of the center.
+	 * @param cz
+	 *            Z coordinate of the center.
+	 * @param ru
+	 *            Radius along the first axis of the plane.
+	 * @param rv
+	 *            Radius along the second axis of the plane.
+	 * @param plane
+	 *            Plane of the ellipse, one of {@link #PLANE_YZ},
+	 *            {@link #PLANE_XZ} and {@link #PLANE_XY}.
+	 * @param gap
+	 *            Distance between two points along the ellipse.
+	 * @param tier
+	 *            Priority tier of the ellipse, see {@link PointBuffer}.
+	 */
+	public void addEllipse(final double cx, final double cy, final double cz, final double ru, final double rv,
+			final int plane, final double gap, final int tier) {
+		this.addEllipseStack(cx, cy, cz, ru, rv, plane, gap, 0.0, 0, 1, 0.0, tier);
+	}
+
+	/**
+	 * Adds horizontal rings stacked at a fixed vertical spacing, either all
+	 * of the same size or shrinking like the rings of an ellipsoid.
+	 *
+	 * @param cx
+	 *            X coordinate of the center of the stack.
+	 * @param cy
+	 *            Y coordinate of the center of the stack.
+	 * @param cz
+	 *            Z coordinate of the center of the stack.
+	 * @param rx
+	 *            Radius along the X axis at the center.
+	 * @param rz
+	 *            Radius along the Z axis at the center.
+	 * @param gap
+	 *            Distance between two points along a ring.
+	 * @param spacing
+	 *            Vertical distance between two rings, negative to stack
+	 *            downwards.
+	 * @param first
+	 *            Index of the first ring, ring `i` lies `i * spacing` above
+	 *            the center.
+	 * @param copies
+	 *            Number of rings.
+	 * @param profile
+	 *            Vertical radius of the ellipsoid the rings lie on, 0 for
+	 *            rings of constant size.
+	 * @param tier
+	 *            Priority tier of the rings, see {@link PointBuffer}.
+	 */
+	public void addRingStack(final double cx, final double cy, final double cz, final double rx, final double rz,
+			final double gap, final double spacing, final int first, final int copies, final double profile,
+			final int tier) {
+		this.addEllipseStack(cx, cy, cz, rx, rz, PLANE_XZ, gap, spacing, first, copies, profile, tier);
+	}
+
+	private void addEllipseStack(final double cx, final double cy, final double cz, final double ru,
+			final double rv, final int plane, final double gap, final double spacing, final int first,
+			final int copies, final double profile, final int tier) {
+		if (copies <= 0) {
+			return;
+		}
+
+		if (this.ellipseCount == this.ellipseCopies.length) {
+			this.ellipses = Arrays.copyOf(this.ellipses, this.ellipses.length * 2);
+			this.ellipseFirsts = Arrays.copyOf(this.ellipseFirsts, this.ellipseCount * 2);
+			this.ellipseCopies = Arrays.copyOf(this.ellipseCopies, this.ellipseCount * 2);
+			this.ellipsePlanes = Arrays.copyOf(this.ellipsePlanes, this.ellipseCount * 2);
+			this.ellipseTiers = Arrays.copyOf(this.ellipseTiers, this.ellipseCount * 2);
+		}
+
+		final int e = this.ellipseCount * 8;
+		this.ellipses[e] = cx;
+		this.ellipses[e + 1] = cy;
+		this.ellipses[e + 2] = cz;
+		this.ellipses[e + 3] = ru;
+		this.ellipses[e + 4] = rv;
+		this.ellipses[e + 5] = gap;
+		this.ellipses[e + 6] = spacing;
+		this.ellipses[e + 7] = profile;
+		this.ellipseFirsts[this.ellipseCount] = first;
+		this.ellipseCopies[this.ellipseCount] = copies;
+		this.ellipsePlanes[this.ellipseCount] = (byte) plane;
+		this.ellipseTiers[this.ellipseCount] = (byte) tier;
+		this.ellipseCount++;
+	}
+
+	/**
+	 * Trims the internal arrays to the added lines and ellipses.
+	 */
+	public void trimToSize() {
+		this.lines = Arrays.copyOf(this.lines, this.lineCount * 6);
+		this.lineSamples = Arrays.copyOf(this.lineSamples, this.lineCount);
+		this.lineCopies = Arrays.copyOf(this.lineCopies, this.lineCount);
+		this.lineSpacings = Arrays.copyOf(this.lineSpacings, this.lineCount);
+		this.lineTiers = Arrays.copyOf(this.lineTiers, this.lineCount);
+		this.ellipses = Arrays.copyOf(this.ellipses, this.ellipseCount * 8);
+		this.ellipseFirsts = Arrays.copyOf(this.ellipseFirsts, this.ellipseCount);
+		this.ellipseCopies = Arrays.copyOf(this.ellipseCopies, this.ellipseCount);
+		this.ellipsePlanes = Arrays.copyOf(this.ellipsePlanes, this.ellipseCount);
+		this.ellipseTiers = Arrays.copyOf(this.ellipseTiers, this.ellipseCount);
+	}
+
+	public boolean isEmpty() {
+		return this.lineCount == 0 && this.ellipseCount == 0;
+	}
+
+	/**
+	 * Counts the points of all whole lines and ellipses.
+	 *
+	 * @return Returns the number of points sampling everything would give.
+	 */
+	public long getTotalSamples() {
+		long total = 0;
+		for (int i = 0; i < this.lineCount; i++) {
+			total += (long) this.lineSamples[i] * this.lineCopies[i];
+		}
+		for (int i = 0; i < this.ellipseCount; i++) {
+			for (int copy = 0; copy < this.ellipseCopies[i]; copy++) {
+				total += this.ellipseSamples(i, this.ellipseScale(i, copy));
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Scale of the radii of an ellipse of a stack.
+	 */
+	private double ellipseScale(final int ellipse, final int copy) {
+		final double profile = this.ellipses[ellipse * 8 + 7];
+		if (profile <= 0.0) {
+			return 1.0;
+		}
+
+		final double ratio = (this.ellipseFirsts[ellipse] + copy) * this.ellipses[ellipse * 8 + 6] / profile;
+		return Math.sqrt(Math.max(1.0 - ratio * ratio, 0.0));
+	}
+
+	/**
+	 * Number of points on an ellipse of a stack with its radii scaled.
+	 */
+	private int ellipseSamples(final int ellipse, final double scale) {
+		final int e = ellipse * 8;
+		return UnitCircleTable.roundSamples(ShapeHelper.ellipseSamples(this.ellipses[e + 3] * scale,
+				this.ellipses[e + 4] * scale, this.ellipses[e + 5]));
+	}
+
+	/**
+	 * Creates a cursor over the parts of all lines and ellipses within the
+	 * given distance of a viewer, tier by tier. Points are only generated as
+	 * the cursor advances, so a caller that stops early never samples the
+	 * rest.
+	 *
+	 * @param x
+	 *            X coordinate of the viewer.
+	 * @param y
+	 *            Y coordinate of the viewer.
+	 * @param z
+	 *            Z coordinate of the viewer.
+	 * @param distance
+	 *            Distance the viewer sees particles in.
+	 * @param lodDistance
+	 *            Distance between two levels of detail, see
+	 *            {@link DetailLevel}.
+	 * @param cone
+	 *            View cone of the viewer, null to sample in every direction.
+	 * @param previousCone
+	 *            View cone of the previous pass, may be null.
+	 * @return Returns the cursor, positioned before the first point.
+	 */
+	public PointCursor cursor(final double x, final double y, final double z, final double distance,
+			final int lodDistance, final ViewCone cone, final ViewCone previousCone) {
+		return new Cursor(x, y, z, distance, lodDistance, cone, previousCone);
+	}
+
+	/**
+	 * Estimates the heap memory held by this wireframe in bytes.
+	 *
+	 * @return Returns the estimated memory usage.
+	 */
+	public long estimateMemoryUsage() {
+		return 80 + 10 * 16 + 8L * this.lines.length + 17L * this.lineSamples.length + 8L * this.ellipses.length
+				+ 10L * this.ellipseCopies.length;
+	}
+
+	/**
+	 * Cursor clipping one line or ellipse at a time and generating the points
+	 * of the clipped part on demand.
+	 */
+	private final class Cursor implements PointCursor {
+
+		private final double viewerX;
+		private final double viewerY;
+		private final double viewerZ;
+		private final double distance;
+		private final int lodDistance;
+		private final ViewCone cone;
+		private final ViewCone previousCone;
+
+		private int tier;
+
+		/**
+		 * Index of the current stack within the tier, lines first, then
+		 * ellipses.
+		 */
+		private int primitive = -1;
+
+		/**
+		 * Current copy of the stack and the last copy within the vertical
+		 * range of the viewer.
+		 */
+		private int copy;
+		private int lastCopy = -1;
+
+		/**
+		 * Index of the next point on the current line or ellipse, its last
+		 * index and the distance between two sampled indices.
+		 */
+		private int index;
+		private int last = -1;
+		private int stride;
+
+		/**
+		 * Start and delta of the current line and the parameter step between
+		 * two of its points, or center and radii of the current ellipse.
+		 */
+		private double ax;
+		private double ay;
+		private double az;
+		private double bx;
+		private double by;
+		private double bz;
+		private double step;
+
+		/**
+		 * Unit circle and plane of the current ellipse, null for lines.
+		 */
+		private double[] circle;
+		private int circleSamples;
+		private int plane;
+
+		private double currentX;
+		private double currentY;
+		private double currentZ;
+
+		private Cursor(final double x, final double y, final double z, final double distance,
+				final int lodDistance, final ViewCone cone, final ViewCone previousCone) {
+			this.viewerX = x;
+			this.viewerY = y;
+			this.viewerZ = z;
+			this.distance = distance;
+			this.lodDistance = lodDistance;
+			this.cone = cone;
+			this.previousCone = previousCone;
+		}
+
+		@Override
+		public boolean next() {
+			while (true) {
+				while (this.index <= this.last) {
+					final int i = this.index;
+					this.index += this.stride;
+
+					if (this.circle == null) {
+						final double t = i * this.step;
+						this.currentX = this.ax + this.bx * t;
+						this.currentY = this.ay + this.by * t;
+						this.currentZ = this.az + this.bz * t;
+						return true;
+					}
+
+					final int c = Math.floorMod(i, this.circleSamples) * 2;
+					final double u = this.circle[c] * this.bx;
+					final double v = this.circle[c + 1] * this.bz;
+					final double px = this.plane == PLANE_YZ ? this.ax : this.ax + u;
+					final double py = this.plane == PLANE_YZ ? this.ay + u
+							: this.plane == PLANE_XY ? this.ay + v : this.ay;
+					final double pz = this.plane == PLANE_XY ? this.az : this.az + v;
+					final double ex = px - this.viewerX;
+					final double ey = py - this.viewerY;
+					final double ez = pz - this.viewerZ;
+
+					if (ex * ex + ey * ey + ez * ez <= this.distance * this.distance) {
+						this.currentX = px;
+						this.currentY = py;
+						this.currentZ = pz;
+						return true;
+					}
+				}
+
+				if (!this.advance()) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Moves to the next line or ellipse with a visible part.
+		 */
+		private boolean advance() {
+			while (true) {
+				while (this.copy < this.lastCopy) {
+					this.copy++;
+
+					if (this.primitive < Wireframe.this.lineCount ? this.clipLine(this.primitive, this.copy)
+							: this.clipEllipse(this.primitive - Wireframe.this.lineCount, this.copy)) {
+						return true;
+					}
+				}
+
+				if (!this.nextStack()) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Moves to the next stack of the current tier, or the first one of the
+		 * next tier, and selects its copies within the vertical range of the
+		 * viewer.
+		 */
+		private boolean nextStack() {
+			while (this.tier < PointBuffer.TIER_COUNT) {
+				this.primitive++;
+
+				if (this.primitive < Wireframe.this.lineCount) {
+					final int line = this.primitive;
+					if (Wireframe.this.lineTiers[line] == this.tier) {
+						final double y1 = Wireframe.this.lines[line * 6 + 1];
+						final double y2 = Wireframe.this.lines[line * 6 + 4];
+						this.selectCopies(Math.min(y1, y2), Math.max(y1, y2), 0, Wireframe.this.lineSpacings[line],
+								Wireframe.this.lineCopies[line]);
+						return true;
+					}
+				} else if (this.primitive < Wireframe.this.lineCount + Wireframe.this.ellipseCount) {
+					final int ellipse = this.primitive - Wireframe.this.lineCount;
+					if (Wireframe.this.ellipseTiers[ellipse] == this.tier) {
+						final double cy = Wireframe.this.ellipses[ellipse * 8 + 1];
+						this.selectCopies(cy, cy, Wireframe.this.ellipseFirsts[ellipse],
+								Wireframe.this.ellipses[ellipse * 8 + 6], Wireframe.this.ellipseCopies[ellipse]);
+						return true;
+					}
+				} else {
+					this.tier++;
+					this.primitive = -1;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Selects the copies of a stack whose vertical extent `[minY, maxY]`,
+		 * moved by `(first + copy) * spacing`, is within the viewing distance
+		 * above or below the viewer.
+		 */
+		private void selectCopies(final double minY, final double maxY, final int first, final double spacing,
+				final int copies) {
+			int from = 0;
+			int to = copies - 1;
+
+			if (spacing != 0.0) {
+				final double low = (this.viewerY - this.distance - maxY) / spacing - first;
+				final double high = (this.viewerY + this.distance - minY) / spacing - first;
+				from = Math.max(from, (int) Math.ceil(Math.min(low, high)));
+				to = Math.min(to, (int) Math.floor(Math.max(low, high)));
+			}
+
+			this.copy = from - 1;
+			this.lastCopy = to;
+		}
+
+		/**
+		 * Clips a copy of a line against the sphere by solving `|start + t *
+		 * delta - viewer| = distance` for `t` and selects the points between
+		 * both solutions. Returns false if none of it is shown.
+		 */
+		private boolean clipLine(final int line, final int lineCopy) {
+			final int l = line * 6;
+			final double offset = lineCopy * Wireframe.this.lineSpacings[line];
+			final double x1 = Wireframe.this.lines[l];
+			final double y1 = Wireframe.this.lines[l + 1] + offset;
+			final double z1 = Wireframe.this.lines[l + 2];
+			final double dx = Wireframe.this.lines[l + 3] - x1;
+			final double dy = Wireframe.this.lines[l + 4] + offset - y1;
+			final double dz = Wireframe.this.lines[l + 5] - z1;
+			final double ox = x1 - this.viewerX;
+			final double oy = y1 - this.viewerY;
+			final double oz = z1 - this.viewerZ;
+			final double a = dx * dx + dy * dy + dz * dz;
+			final double b = dx * ox + dy * oy + dz * oz;
+			final double c = ox * ox + oy * oy + oz * oz - this.distance * this.distance;
+			final int samples = Wireframe.this.lineSamples[line];
+
+			this.circle = null;
+			this.ax = x1;
+			this.ay = y1;
+			this.az = z1;
+			this.bx = dx;
+			this.by = dy;
+			this.bz = dz;
+
+			if (a == 0.0 || samples == 1) {
+				this.step = 0.0;
+				return this.select(0, c <= 0.0 ? 0 : -1, 1);
+			}
+
+			final double discriminant = b * b - a * c;
+			if (discriminant < 0.0) {
+				return false;
+			}
+
+			final double root = Math.sqrt(discriminant);
+			final double t0 = Math.max((-b - root) / a, 0.0);
+			final double t1 = Math.min((-b + root) / a, 1.0);
+			if (t0 > t1) {
+				return false;
+			}
+
+			final double nearest = Math.max(0.0, Math.min(1.0, -b / a));
+			final double nx = ox + dx * nearest;
+			final double ny = oy + dy * nearest;
+			final double nz = oz + dz * nearest;
+			final int level = DetailLevel.of(nx * nx + ny * ny + nz * nz, this.lodDistance);
+			if (level == DetailLevel.OUTLINE_ONLY && Wireframe.this.lineTiers[line] == PointBuffer.TIER_FILL) {
+				return false;
+			}
+
+			if (this.cone != null) {
+				final double tm = (t0 + t1) / 2.0;
+				final double halfLength = Math.sqrt(a) * (t1 - t0) / 2.0;
+				final double mx = x1 + dx * tm;
+				final double my = y1 + dy * tm;
+				final double mz = z1 + dz * tm;
+
+				if (!this.cone.intersectsSphere(mx, my, mz, halfLength) && (this.previousCone == null
+						|| !this.previousCone.intersectsSphere(mx, my, mz, halfLength))) {
+					return false;
+				}
+			}
+
+			this.step = 1.0 / (samples - 1);
+			return this.select((int) Math.ceil(t0 / this.step), (int) Math.floor(t1 / this.step),
+					DetailLevel.stride(level));
+		}
+
+		/**
+		 * Clips a copy of an ellipse against the circle the sphere cuts out of
+		 * its plane. In the space where the ellipse is the unit circle, that
+		 * circle becomes an ellipse which is enclosed by a circle, and the arc
+		 * of the unit circle inside it follows from the law of cosines. The arc
+		 * is exact for circles and slightly too long for other ellipses, so its
+		 * points are still checked one by one. Returns false if none of it is
+		 * shown.
+		 */
+		private boolean clipEllipse(final int ellipse, final int ellipseCopy) {
+			final int e = ellipse * 8;
+			final int ellipsePlane = Wireframe.this.ellipsePlanes[ellipse];
+			final double scale = Wireframe.this.ellipseScale(ellipse, ellipseCopy);
+			final double cx = Wireframe.this.ellipses[e];
+			final double cy = Wireframe.this.ellipses[e + 1]
+					+ (Wireframe.this.ellipseFirsts[ellipse] + ellipseCopy) * Wireframe.this.ellipses[e + 6];
+			final double cz = Wireframe.this.ellipses[e + 2];
+			final double ru = Wireframe.this.ellipses[e + 3] * scale;
+			final double rv = Wireframe.this.ellipses[e + 4] * scale;
+
+			// viewer relative to the center along both axes of the plane and its normal
+			final double du = ellipsePlane == PLANE_YZ ? this.viewerY - cy : this.viewerX - cx;
+			final double dv = ellipsePlane == PLANE_XY ? this.viewerY - cy : this.viewerZ - cz;
+			final double dn = ellipsePlane == PLANE_YZ ? cx - this.viewerX
+					: ellipsePlane == PLANE_XZ ? cy - this.viewerY : cz - this.viewerZ;
+			final double cutSquared = this.distance * this.distance - dn * dn;
+
+			if (cutSquared < 0.0 || ru <= 0.0 || rv <= 0.0) {
+				return false;
+			}
+
+			final double planar = Math.sqrt(du * du + dv * dv);
+			final double gap = Math.max(Math.max(planar - Math.max(ru, rv), Math.min(ru, rv) - planar), 0.0);
+			final int level = DetailLevel.of(gap * gap + dn * dn, this.lodDistance);
+			if (level == DetailLevel.OUTLINE_ONLY && Wireframe.this.ellipseTiers[ellipse] == PointBuffer.TIER_FILL) {
+				return false;
+			}
+
+			final double cut = Math.sqrt(cutSquared);
+			if (this.cone != null) {
+				// center of the circle the sphere cuts out of the plane
+				final double mx = ellipsePlane == PLANE_YZ ? cx : this.viewerX;
+				final double my = ellipsePlane == PLANE_XZ ? cy : this.viewerY;
+				final double mz = ellipsePlane == PLANE_XY ? cz : this.viewerZ;
+
+				if (!this.cone.intersectsSphere(mx, my, mz, cut)
+						&& (this.previousCone == null || !this.previousCone.intersectsSphere(mx, my, mz, cut))) {
+					return false;
+				}
+			}
+
+			final double u = du / ru;
+			final double v = dv / rv;
+			final double d = Math.sqrt(u * u + v * v);
+			final double rho = cut / Math.min(ru, rv);
+			final int samples = Wireframe.this.ellipseSamples(ellipse, scale);
+			final int first;
+			final int lastIndex;
+
+			if (d + 1.0 <= rho) {
+				first = 0;
+				lastIndex = samples - 1;
+			} else if (d >= 1.0 + rho || d + rho <= 1.0) {
+				return false;
+			} else {
+				final double angle = Math.atan2(v, u);
+				final double halfArc = Math
+						.acos(Math.max(-1.0, Math.min(1.0, (1.0 + d * d - rho * rho) / (2.0 * d))));
+				final double perRadian = samples / (2.0 * Math.PI);
+				first = (int) Math.ceil((angle - halfArc) * perRadian);
+				lastIndex = Math.min((int) Math.floor((angle + halfArc) * perRadian), first + samples - 1);
+			}
+
+			this.circle = UnitCircleTable.get(samples);
+			this.circleSamples = samples;
+			this.plane = ellipsePlane;
+			this.ax = cx;
+			this.ay = cy;
+			this.az = cz;
+			this.bx = ru;
+			this.bz = rv;
+			return this.select(first, lastIndex, DetailLevel.stride(level));
+		}
+
+		/**
+		 * Selects the indices between first and last that are multiples of the
+		 * stride, so the same points are shown while the viewer moves.
+		 */
+		private boolean select(final int first, final int lastIndex, final int stride) {
+			this.index = first + Math.floorMod(-first, stride);
+			this.last = lastIndex;
+			this.stride = stride;
+			return this.index <= this.last;
+		}
+
+		@Override
+		public double getX() {
+			return this.currentX;
+		}
+
+		@Override
+		public double getY() {
+			return this.currentY;
+		}
+
+		@Override
+		public double getZ() {
+			return this.currentZ;
+		}
+	}
+}
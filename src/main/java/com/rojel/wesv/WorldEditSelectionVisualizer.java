@@ -6,16 +6,17 @@ package com.rojel.wesv;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 import org.bukkit.ChatColor;
-import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -34,12 +35,15 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 	private Configuration config;
 	private WorldEditHelper worldEditHelper;
 	private ShapeHelper shapeHelper;
+	private ShapeWorkerPool shapeWorkerPool;
+	private OcclusionCache occlusionCache;
+	private WesvListener listener;
 
 	private final List<UUID> shown = new ArrayList<>();
-	private final List<UUID> lastSelectionTooLarge = new ArrayList<>();
 	private final Map<UUID, Region> lastSelectedRegions = new HashMap<>();
 	private final Map<UUID, Integer> fadeOutTasks = new HashMap<>();
-	private final Map<UUID, Collection<Location>> playerParticleMap = new HashMap<>();
+	private final Map<UUID, Integer> idleTasks = new HashMap<>();
+	private final Map<UUID, PointBuffer> playerParticleMap = new HashMap<>();
 
 	@Override
 	public void onEnable() {
@@ -47,10 +51,14 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 		this.config.load();
 		this.worldEditHelper = new WorldEditHelper(this);
 		this.shapeHelper = new ShapeHelper(this.config);
+		this.shapeWorkerPool = new ShapeWorkerPool(this, this.shapeHelper, this.config.getShapeWorkerThreads());
+		this.occlusionCache = new OcclusionCache(this, this.shapeWorkerPool);
 
 		new ParticleTask(this);
 
-		this.getServer().getPluginManager().registerEvents(new WesvListener(this), this);
+		this.listener = new WesvListener(this);
+		this.getServer().getPluginManager().registerEvents(this.listener, this);
+		WorldEdit.getInstance().getEventBus().register(this.listener);
 
 		for (final Player player : this.getServer().getOnlinePlayers()) {
 			addPlayer(player);
@@ -59,6 +67,17 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 		new CustomMetrics(this, this.config).initMetrics();
 	}
 
+	@Override
+	public void onDisable() {
+		if (this.listener != null) {
+			WorldEdit.getInstance().getEventBus().unregister(this.listener);
+		}
+
+		if (this.shapeWorkerPool != null) {
+			this.shapeWorkerPool.shutdown();
+		}
+	}
+
 	@Override
 	public boolean onCommand(final CommandSender sender, final Command command, final String label,
 			final String[] args) {
@@ -66,6 +85,11 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 			return false;
 		}
 
+		if (args.length > 0 && args[0].equalsIgnoreCase("stats") && sender.hasPermission("wesv.reloadconfig")) {
+			this.sendStatistics(sender);
+			return true;
+		}
+
 		if (args.length == 0 || !args[0].equalsIgnoreCase("reload") || !sender.hasPermission("wesv.reloadconfig")) {
 			if (sender instanceof Player) {
 				final Player player = (Player) sender;
@@ -86,6 +110,8 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 			}
 		} else {
 			this.config.reloadConfig();
+			this.shapeHelper.reload();
+			this.occlusionCache.clear();
 			sender.sendMessage(this.config.getConfigReloaded());
 		}
 		return true;
@@ -95,12 +121,39 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 	public List<String> onTabComplete(final CommandSender sender, final Command command, final String alias,
 			final String[] args) {
 		if (args.length == 1 && sender.hasPermission("wesv.reloadconfig")) {
-			return StringUtil.copyPartialMatches(args[0], Collections.singletonList("reload"), new ArrayList<>());
+			return StringUtil.copyPartialMatches(args[0], Arrays.asList("reload", "stats"), new ArrayList<>());
 		}
 
 		return Collections.emptyList();
 	}
 
+	private void sendStatistics(final CommandSender sender) {
+		final GeometryCache cache = this.shapeHelper.getGeometryCache();
+		final long lookups = cache.getHits() + cache.getMisses();
+
+		sender.sendMessage(ChatColor.GOLD + "Geometry cache: " + ChatColor.WHITE + cache.size() + " entries, "
+				+ cache.getUsedMemory() / 1024 + " / " + cache.getMaxMemory() / 1024 + " KB");
+		sender.sendMessage(ChatColor.GOLD + "Hits: " + ChatColor.WHITE + cache.getHits() + ChatColor.GOLD
+				+ " Misses: " + ChatColor.WHITE + cache.getMisses() + ChatColor.GOLD + " Evictions: " + ChatColor.WHITE
+				+ cache.getEvictions() + ChatColor.GOLD + " Hit rate: " + ChatColor.WHITE
+				+ (lookups == 0 ? 0 : cache.getHits() * 100 / lookups) + "%");
+
+		// selections shown to several players share their buffer, count it once
+		final Set<PointBuffer> shownGeometry = Collections.newSetFromMap(new IdentityHashMap<>());
+		shownGeometry.addAll(this.playerParticleMap.values());
+		long usedMemory = 0;
+		long quantizationSaving = 0;
+
+		for (final PointBuffer points : shownGeometry) {
+			usedMemory += points.estimateMemoryUsage();
+			quantizationSaving += points.estimateQuantizationSaving();
+		}
+
+		sender.sendMessage(ChatColor.GOLD + "Shown geometry: " + ChatColor.WHITE + shownGeometry.size()
+				+ " selections, " + usedMemory / 1024 + " KB" + ChatColor.GOLD + " As doubles: " + ChatColor.WHITE
+				+ (usedMemory + quantizationSaving) / 1024 + " KB");
+	}
+
 	@SuppressWarnings("deprecation")
 	public boolean isHoldingSelectionItem(final Player player) {
 		// return isSelectionItem(player.getItemInHand());
@@ -138,36 +191,27 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 		}
 
 		final Region region = this.worldEditHelper.getSelectedRegion(player);
-		final UUID uuid = player.getUniqueId();
-
-		if (region != null && region.getArea() > this.config.getMaxSize()) {
-			this.setParticlesForPlayer(player, null);
 
-			if (!this.lastSelectionTooLarge.contains(uuid)) {
-				player.sendMessage(ChatColor.LIGHT_PURPLE + this.config.getLangSelectionSizeOf()
-						+ this.config.getMaxSize() + this.config.getLangBlocks());
-				this.lastSelectionTooLarge.add(uuid);
-			}
-		} else {
-			this.lastSelectionTooLarge.remove(player.getUniqueId());
-			this.setParticlesForPlayer(player, this.shapeHelper.getLocationsFromRegion(region));
-		}
+		this.shapeWorkerPool.compute(player, region);
 		this.shown.add(player.getUniqueId());
 	}
 
 	public void hideSelection(final Player player) {
+		this.shapeWorkerPool.cancel(player.getUniqueId());
 		this.shown.remove(player.getUniqueId());
 		this.playerParticleMap.remove(player.getUniqueId());
 		this.cancelAndRemoveFadeOutTask(player.getUniqueId());
+		this.cancelAndRemoveIdleTask(player.getUniqueId());
 	}
 
-	public void setParticlesForPlayer(final Player player, final Collection<Location> locations) {
+	public void setParticlesForPlayer(final Player player, final PointBuffer points) {
 		this.cancelAndRemoveFadeOutTask(player.getUniqueId());
+		this.cancelAndRemoveIdleTask(player.getUniqueId());
 
-		if (locations == null || locations.isEmpty()) {
+		if (points == null || points.isEmpty()) {
 			this.playerParticleMap.remove(player.getUniqueId());
 		} else {
-			this.playerParticleMap.put(player.getUniqueId(), locations);
+			this.playerParticleMap.put(player.getUniqueId(), points);
 
 			final int fade = config.getParticleFadeDelay();
 
@@ -180,6 +224,18 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 
 				this.fadeOutTasks.put(player.getUniqueId(), id);
 			}
+
+			final int idle = config.getIdleGeometryDelay();
+
+			// plotted points of a selection left alone are swapped for its wireframe to free their memory
+			if (idle > 0 && points.size() > 0) {
+				final int id = this.getServer().getScheduler().runTaskLater(this, () -> {
+					this.idleTasks.remove(player.getUniqueId());
+					this.shapeWorkerPool.compact(player, points);
+				}, idle).getTaskId();
+
+				this.idleTasks.put(player.getUniqueId(), id);
+			}
 		}
 	}
 
@@ -190,6 +246,13 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 		}
 	}
 
+	private void cancelAndRemoveIdleTask(final UUID uuid) {
+		final Integer id = this.idleTasks.remove(uuid);
+		if (id != null) {
+			this.getServer().getScheduler().cancelTask(id);
+		}
+	}
+
 	public void addPlayer(final Player player) {
 		if (this.shouldShowSelection(player)) {
 			this.showSelection(player);
@@ -199,11 +262,12 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 	public void removePlayer(final Player player) {
 		final UUID uuid = player.getUniqueId();
 		this.shown.remove(uuid);
-		this.lastSelectionTooLarge.remove(uuid);
 		this.lastSelectedRegions.remove(uuid);
 		this.playerParticleMap.remove(uuid);
 
+		this.shapeWorkerPool.cancel(uuid);
 		this.cancelAndRemoveFadeOutTask(uuid);
+		this.cancelAndRemoveIdleTask(uuid);
 	}
 
 	public Configuration getCustomConfig() {
@@ -214,7 +278,11 @@ public class WorldEditSelectionVisualizer extends JavaPlugin {
 		return this.lastSelectedRegions;
 	}
 
-	public Map<UUID, Collection<Location>> getPlayerParticleMap() {
+	public OcclusionCache getOcclusionCache() {
+		return this.occlusionCache;
+	}
+
+	public Map<UUID, PointBuffer> getPlayerParticleMap() {
 		return this.playerParticleMap;
 	}
 }
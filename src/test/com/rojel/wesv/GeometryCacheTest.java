@@ -0,0 +1,121 @@
+/***
+ * Unit tests for the GeometryCache class.
+ */
+
+package com.rojel.wesv;
+
+import static com.rojel.wesv.TestWorlds.WE_WORLD;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.CuboidRegion;
+
+/**
+ * Unit tests for the GeometryCache class.
+ */
+public class GeometryCacheTest {
+
+    /**
+     * Settings every test entry is plotted with.
+     */
+    private static final PlotSettings SETTINGS = new PlotSettings(0.5, 1.0, true, true, true, true, false);
+
+    /**
+     * Estimated memory of a single test entry.
+     */
+    private long entrySize;
+
+    /**
+     * Measures the memory of a single entry, all test entries have the same size.
+     */
+    @Before
+    public void setUp() {
+        final GeometryCache cache = new GeometryCache(Long.MAX_VALUE);
+        cache.put(fingerprint(0), SETTINGS, points());
+        this.entrySize = cache.getUsedMemory();
+    }
+
+    /**
+     * Tests that lookups are counted as hits or misses.
+     */
+    @Test
+    public void testCountsHitsAndMisses() {
+        final GeometryCache cache = new GeometryCache(Long.MAX_VALUE);
+        final PointBuffer points = points();
+
+        assertThat("Empty cache returned an entry.", cache.get(fingerprint(1), SETTINGS), is(nullValue()));
+        cache.put(fingerprint(1), SETTINGS, points);
+
+        assertThat("Stored entry was not returned.", cache.get(fingerprint(1), SETTINGS), is(sameInstance(points)));
+        assertThat("Entry was returned for other settings.", cache.get(fingerprint(1), SETTINGS.toWireframe()),
+                is(nullValue()));
+        assertThat("Hits were not counted.", cache.getHits(), is(1L));
+        assertThat("Misses were not counted.", cache.getMisses(), is(2L));
+    }
+
+    /**
+     * Tests that the least recently used entry is evicted once the memory budget is exceeded.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsedByMemory() {
+        final GeometryCache cache = new GeometryCache(this.entrySize * 2 + this.entrySize / 2);
+        cache.put(fingerprint(1), SETTINGS, points());
+        cache.put(fingerprint(2), SETTINGS, points());
+        cache.get(fingerprint(1), SETTINGS);
+        cache.put(fingerprint(3), SETTINGS, points());
+
+        assertThat("Cache holds more entries than fit into its budget.", cache.size(), is(2));
+        assertThat("Eviction was not counted.", cache.getEvictions(), is(1L));
+        assertThat("Used memory does not match the kept entries.", cache.getUsedMemory(), is(this.entrySize * 2));
+        assertThat("Recently used entry was evicted.", cache.get(fingerprint(1), SETTINGS), is(notNullValue()));
+        assertThat("Least recently used entry was kept.", cache.get(fingerprint(2), SETTINGS), is(nullValue()));
+        assertThat("Newest entry was evicted.", cache.get(fingerprint(3), SETTINGS), is(notNullValue()));
+    }
+
+    /**
+     * Tests that shrinking the budget evicts entries and that entries larger than the budget are not stored.
+     */
+    @Test
+    public void testRespectsChangedBudget() {
+        final GeometryCache cache = new GeometryCache(this.entrySize * 2);
+        cache.put(fingerprint(1), SETTINGS, points());
+        cache.put(fingerprint(2), SETTINGS, points());
+        cache.setMaxMemory(this.entrySize);
+
+        assertThat("Shrinking the budget did not evict.", cache.size(), is(1));
+        assertThat("Eldest entry was kept.", cache.get(fingerprint(1), SETTINGS), is(nullValue()));
+
+        cache.setMaxMemory(this.entrySize - 1);
+        cache.put(fingerprint(3), SETTINGS, points());
+
+        assertThat("Entry larger than the budget was stored.", cache.get(fingerprint(3), SETTINGS), is(nullValue()));
+        assertThat("Used memory was not reduced.", cache.getUsedMemory(), is(0L));
+    }
+
+    /**
+     * Creates the fingerprint of a cuboid whose size depends on the given index.
+     */
+    private static RegionFingerprint fingerprint(final int index) {
+        return RegionFingerprint.of(new CuboidRegion(WE_WORLD, new Vector(0, 0, 0), new Vector(index, 1, 1)));
+    }
+
+    /**
+     * Creates a small sealed buffer, all of them have the same estimated memory usage.
+     */
+    private static PointBuffer points() {
+        final PointBuffer points = new PointBuffer(null, 4);
+        points.beginSegment(PointBuffer.TIER_EDGE);
+        for (int i = 0; i < 4; i++) {
+            points.add(i, 0, 0);
+        }
+        points.seal();
+        return points;
+    }
+}
@@ -0,0 +1,79 @@
+/***
+ * Unit tests for the HullEdges class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the HullEdges class.
+ */
+public class HullEdgesTest {
+
+    /**
+     * Corners of every side of the unit cube, counterclockwise as seen from outside.
+     */
+    private static final int[][][] CUBE_SIDES = {
+            { { 0, 0, 0 }, { 0, 1, 0 }, { 1, 1, 0 }, { 1, 0, 0 } },
+            { { 0, 0, 1 }, { 1, 0, 1 }, { 1, 1, 1 }, { 0, 1, 1 } },
+            { { 0, 0, 0 }, { 1, 0, 0 }, { 1, 0, 1 }, { 0, 0, 1 } },
+            { { 0, 1, 0 }, { 0, 1, 1 }, { 1, 1, 1 }, { 1, 1, 0 } },
+            { { 0, 0, 0 }, { 0, 0, 1 }, { 0, 1, 1 }, { 0, 1, 0 } },
+            { { 1, 0, 0 }, { 1, 1, 0 }, { 1, 1, 1 }, { 1, 0, 1 } } };
+
+    /**
+     * Tests that the diagonals splitting the sides of a cube are dropped and every cube edge is kept once.
+     */
+    @Test
+    public void testCubeKeepsEveryEdgeOnce() {
+        final double[] triangles = new double[CUBE_SIDES.length * 2 * 9];
+        int i = 0;
+
+        for (final int[][] side : CUBE_SIDES) {
+            for (final int corner : new int[] { 0, 1, 2, 0, 2, 3 }) {
+                for (int axis = 0; axis < 3; axis++) {
+                    triangles[i++] = side[corner][axis];
+                }
+            }
+        }
+
+        final HullEdges hull = new HullEdges(triangles);
+        final Set<String> edges = new HashSet<>();
+
+        assertThat("Cube has the wrong number of edges.", hull.getEdgeCount(), is(12));
+        assertThat("Cube has the wrong number of vertices.", hull.getVertexCount(), is(8));
+
+        for (int edge = 0; edge < hull.getEdgeCount(); edge++) {
+            final int a = hull.getVertex(edge, 0);
+            final int b = hull.getVertex(edge, 1);
+            final double length = Math.abs(hull.getX(a) - hull.getX(b)) + Math.abs(hull.getY(a) - hull.getY(b))
+                    + Math.abs(hull.getZ(a) - hull.getZ(b));
+
+            assertThat("A side diagonal was kept.", length, is(1.0));
+            assertThat("An edge was kept twice.", edges.add(Math.min(a, b) + "-" + Math.max(a, b)), is(true));
+        }
+    }
+
+    /**
+     * Tests that all edges of a hull without coplanar triangles are kept.
+     */
+    @Test
+    public void testTetrahedronKeepsAllEdges() {
+        final double[] triangles = {
+                0, 0, 0, 0, 1, 0, 1, 0, 0,
+                0, 0, 0, 1, 0, 0, 0, 0, 1,
+                0, 0, 0, 0, 0, 1, 0, 1, 0,
+                1, 0, 0, 0, 1, 0, 0, 0, 1 };
+        final HullEdges hull = new HullEdges(triangles);
+
+        assertThat("Tetrahedron has the wrong number of edges.", hull.getEdgeCount(), is(6));
+        assertThat("Tetrahedron has the wrong number of vertices.", hull.getVertexCount(), is(4));
+    }
+}
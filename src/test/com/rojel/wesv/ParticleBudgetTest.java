@@ -0,0 +1,124 @@
+/***
+ * Unit tests for the ParticleBudget class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the ParticleBudget class.
+ */
+public class ParticleBudgetTest {
+
+    /**
+     * Budget under test.
+     */
+    private ParticleBudget budget;
+
+    /**
+     * Creates a fresh budget for every test.
+     */
+    @Before
+    public void setUp() {
+        this.budget = new ParticleBudget();
+    }
+
+    /**
+     * Tests that the budget of a tick is split between the players by their weight.
+     */
+    @Test
+    public void testSharesByWeight() {
+        final int[] light = new int[1];
+        final int[] heavy = new int[1];
+
+        this.budget.add((x, y, z) -> light[0]++, visibleSet(1000), 1);
+        this.budget.add((x, y, z) -> heavy[0]++, visibleSet(1000), 3);
+
+        assertThat("Budget was not used up.", this.budget.send(100), is(100));
+        assertThat("Light player got the wrong share.", light[0], is(25));
+        assertThat("Heavy player got the wrong share.", heavy[0], is(75));
+    }
+
+    /**
+     * Tests that what a player with few pending particles leaves over goes to the other players.
+     */
+    @Test
+    public void testLeftoversGoToOtherPlayers() {
+        final int[] small = new int[1];
+        final int[] large = new int[1];
+
+        this.budget.add((x, y, z) -> small[0]++, visibleSet(10), 3);
+        this.budget.add((x, y, z) -> large[0]++, visibleSet(1000), 1);
+
+        assertThat("Budget was not used up.", this.budget.send(100), is(100));
+        assertThat("Small player was not sent everything.", small[0], is(10));
+        assertThat("Large player did not get the leftovers.", large[0], is(90));
+        assertThat("Budget was carried although it was used up.", this.budget.getCarried(), is(0));
+    }
+
+    /**
+     * Tests over many ticks that the budget is never exceeded, every pending particle is sent exactly once and at
+     * most one tick worth of unused budget is carried.
+     */
+    @Test
+    public void testBudgetIsNeverExceeded() {
+        final int tickBudget = 50;
+        final VisibleSet[] visibleSets = new VisibleSet[5];
+        final int[] sizes = { 3, 40, 170, 333, 7 };
+        final int[] sent = new int[visibleSets.length];
+        int carried = 0;
+
+        for (int i = 0; i < visibleSets.length; i++) {
+            visibleSets[i] = visibleSet(sizes[i]);
+        }
+
+        for (int tick = 0; tick < 40; tick++) {
+            for (int i = 0; i < visibleSets.length; i++) {
+                final int player = i;
+                this.budget.add((x, y, z) -> sent[player]++, visibleSets[i], 1 + i % 3);
+            }
+
+            final int total = this.budget.send(tickBudget);
+
+            assertThat("Tick budget was exceeded.", total <= tickBudget + carried, is(true));
+            carried = this.budget.getCarried();
+            assertThat("More than one tick worth of budget was carried.", carried <= tickBudget, is(true));
+        }
+
+        for (int i = 0; i < visibleSets.length; i++) {
+            assertThat("Player was not sent every particle once.", sent[i], is(sizes[i]));
+            assertThat("Player still has pending particles.", visibleSets[i].getPending(), is(0));
+        }
+        assertThat("Unused budget was not carried.", carried, is(tickBudget));
+    }
+
+    /**
+     * Tests that every particle is sent at once without a budget.
+     */
+    @Test
+    public void testNoBudgetSendsEverything() {
+        this.budget.add((x, y, z) -> { }, visibleSet(300), 1);
+        this.budget.add((x, y, z) -> { }, visibleSet(200), 2);
+
+        assertThat("Not every particle was sent.", this.budget.send(0), is(500));
+    }
+
+    /**
+     * Creates a visible set with all of its points due.
+     */
+    private static VisibleSet visibleSet(final int size) {
+        final VisibleSet visibleSet = new VisibleSet();
+        visibleSet.reset(null, null, 0, 0, 0, 0, 0);
+
+        for (int i = 0; i < size; i++) {
+            visibleSet.addWireframePoint(i, 0, 0);
+        }
+        visibleSet.due(0, 1);
+        return visibleSet;
+    }
+}
@@ -0,0 +1,204 @@
+/***
+ * Micro-benchmark for the PointBuffer class.
+ */
+
+package com.rojel.wesv;
+
+import static com.rojel.wesv.TestWorlds.WE_WORLD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+
+/**
+ * Micro-benchmark for the PointBuffer class, producing the figures quoted when the storage of points was changed.
+ * It is not a unit test and has to be run by hand:
+ *
+ * <pre>
+ * java com.rojel.wesv.PointBufferBenchmark heap &lt;selections&gt; &lt;location|doubles|quantized&gt;
+ * java com.rojel.wesv.PointBufferBenchmark cull
+ * </pre>
+ *
+ * Every form of the heap report should be run in a fresh JVM.
+ */
+public final class PointBufferBenchmark {
+
+    /**
+     * Number of runs the median culling time is taken of.
+     */
+    private static final int RUNS = 60;
+
+    private PointBufferBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark given by the arguments.
+     */
+    public static void main(final String[] args) {
+        if (args.length == 3 && "heap".equals(args[0])) {
+            heap(Integer.parseInt(args[1]), args[2]);
+        } else if (args.length == 1 && "cull".equals(args[0])) {
+            cull();
+        } else {
+            System.err.println("Usage: heap <selections> <location|doubles|quantized> | cull");
+        }
+    }
+
+    /**
+     * Plots cuboid selections of 30 to 50 blocks wide and reports the heap taken by their points in the given
+     * form: every point as its own array of the five numbers of a Location, packed doubles or sealed buffers. The
+     * figure of the sealed buffers includes segment bounds, the segment grid and the duplicate bitsets.
+     */
+    private static void heap(final int selections, final String form) {
+        final Configuration config = new Configuration(null);
+        final ShapeHelper shapeHelper = new ShapeHelper(config);
+        final PlotSettings settings = new PlotSettings(config, false);
+        final List<Object> kept = new ArrayList<>();
+        final long before = usedMemory();
+        long points = 0;
+
+        for (int i = 0; i < selections; i++) {
+            final int x = i * 97;
+            final int size = 30 + i % 20;
+            final Region region = new CuboidRegion(WE_WORLD, new Vector(x, 60, -x),
+                    new Vector(x + size, 60 + size / 2, -x + size));
+            final PointBuffer plotted = TestWorlds.plot(shapeHelper, region, settings, null);
+
+            // every selection is measured on its own, not shared through the cache
+            shapeHelper.getGeometryCache().clear();
+            points += plotted.size();
+
+            if ("quantized".equals(form)) {
+                kept.add(plotted);
+            } else if ("doubles".equals(form)) {
+                final double[] coords = new double[plotted.size() * 3];
+                for (int j = 0; j < plotted.size(); j++) {
+                    coords[j * 3] = plotted.getX(j);
+                    coords[j * 3 + 1] = plotted.getY(j);
+                    coords[j * 3 + 2] = plotted.getZ(j);
+                }
+                kept.add(coords);
+            } else {
+                final List<double[]> locations = new ArrayList<>(plotted.size());
+                for (int j = 0; j < plotted.size(); j++) {
+                    locations.add(new double[] { plotted.getX(j), plotted.getY(j), plotted.getZ(j), 0, 0 });
+                }
+                kept.add(locations);
+            }
+        }
+
+        // the kept points are still referenced here, so they are not collected before the measurement
+        final long used = usedMemory() - before;
+        System.out.printf("%s: %,d selections, %,d points, %.1f MB%n", form, kept.size(), points,
+                used / (1024.0 * 1024.0));
+        shapeHelper.shutdown();
+    }
+
+    /**
+     * Culls random points in a 200 block cube to 32 blocks around a viewer in the middle and reports the median time
+     * of a pass: Location-like objects tested one by one, an unsealed buffer of packed doubles and a sealed buffer
+     * using the quantized kernel.
+     */
+    private static void cull() {
+        final Object world = new Object();
+        final double maxDistanceSquared = 32 * 32;
+
+        for (final int size : new int[] { 10000, 100000, 1000000 }) {
+            final Random random = new Random(1);
+            final List<LocationLike> locations = new ArrayList<>(size);
+            final PointBuffer doubles = new PointBuffer(null, size);
+            final PointBuffer sealed = new PointBuffer(null, size);
+            final int[] indices = new int[size];
+            final long[][] times = new long[3][RUNS];
+            long culled = 0;
+
+            for (int i = 0; i < size; i++) {
+                final double x = random.nextInt(3200) / 16.0;
+                final double y = random.nextInt(3200) / 16.0;
+                final double z = random.nextInt(3200) / 16.0;
+                locations.add(new LocationLike(world, x, y, z));
+                doubles.add(x, y, z);
+                sealed.add(x, y, z);
+            }
+            sealed.seal();
+
+            for (int run = 0; run < RUNS; run++) {
+                final long start = System.nanoTime();
+                final LocationLike viewer = new LocationLike(world, 100, 100, 100);
+                int visible = 0;
+                for (final LocationLike location : locations) {
+                    if (location.distanceSquared(viewer) <= maxDistanceSquared) {
+                        indices[visible++] = 1;
+                    }
+                }
+
+                final long locationEnd = System.nanoTime();
+                visible += doubles.cull(0, size, 1, 100, 100, 100, maxDistanceSquared, indices, 0);
+                final long doublesEnd = System.nanoTime();
+                visible += sealed.cull(0, size, 1, 100, 100, 100, maxDistanceSquared, indices, 0);
+                final long sealedEnd = System.nanoTime();
+
+                times[0][run] = locationEnd - start;
+                times[1][run] = doublesEnd - locationEnd;
+                times[2][run] = sealedEnd - doublesEnd;
+                culled += visible;
+            }
+
+            for (final long[] time : times) {
+                Arrays.sort(time);
+            }
+            // the number of points in range is printed so the culling loops cannot be optimized away
+            System.out.printf("%,d points, %,d in range: Location %.3f ms, packed doubles %.3f ms, quantized %.3f ms%n",
+                    size, culled / (3 * RUNS), times[0][RUNS / 2] / 1e6, times[1][RUNS / 2] / 1e6,
+                    times[2][RUNS / 2] / 1e6);
+        }
+    }
+
+    /**
+     * Retrieves the heap in use after collecting garbage.
+     */
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Stand-in for a Location: a world and a position, with the checks Location.distanceSquared makes.
+     */
+    private static final class LocationLike {
+
+        private final Object world;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        LocationLike(final Object world, final double x, final double y, final double z) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        double distanceSquared(final LocationLike other) {
+            if (other == null || other.world == null || this.world == null) {
+                throw new IllegalArgumentException("Cannot measure distance to a null world");
+            } else if (other.world != this.world) {
+                throw new IllegalArgumentException("Cannot measure distance between worlds");
+            }
+
+            final double dx = this.x - other.x;
+            final double dy = this.y - other.y;
+            final double dz = this.z - other.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
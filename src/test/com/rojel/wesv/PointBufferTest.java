@@ -0,0 +1,128 @@
+/***
+ * Unit tests for the PointBuffer class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the PointBuffer class.
+ */
+public class PointBufferTest {
+
+    /**
+     * Buffer under test, created with a tiny capacity so that growing is exercised.
+     */
+    private PointBuffer buffer;
+
+    /**
+     * Creates a fresh buffer for every test.
+     */
+    @Before
+    public void setUp() {
+        this.buffer = new PointBuffer(null, 1);
+    }
+
+    /**
+     * Tests that points keep their coordinates while the buffer grows.
+     */
+    @Test
+    public void testAddGrowsAndKeepsCoordinates() {
+        for (int i = 0; i < 100; i++) {
+            this.buffer.add(i, i * 2, i * 3);
+        }
+
+        assertThat("Buffer did not keep all added points.", this.buffer.size(), is(100));
+        assertThat("X coordinate changed after growing.", this.buffer.getX(42), is(42.0));
+        assertThat("Y coordinate changed after growing.", this.buffer.getY(42), is(84.0));
+        assertThat("Z coordinate changed after growing.", this.buffer.getZ(42), is(126.0));
+    }
+
+    /**
+     * Tests that a shifted copy only moves the copied points vertically.
+     */
+    @Test
+    public void testAddShifted() {
+        this.buffer.add(1, 2, 3);
+        this.buffer.add(4, 5, 6);
+        this.buffer.addShifted(0, 2, 10, PointBuffer.TIER_FILL);
+
+        assertThat("Shifted copy has the wrong size.", this.buffer.size(), is(4));
+        assertThat("Shifted copy changed X.", this.buffer.getX(3), is(4.0));
+        assertThat("Shifted copy was not moved up.", this.buffer.getY(3), is(15.0));
+        assertThat("Original point was modified.", this.buffer.getY(1), is(5.0));
+    }
+
+    /**
+     * Tests that trimming keeps the stored points intact.
+     */
+    @Test
+    public void testTrimToSize() {
+        this.buffer.add(1, 2, 3);
+        this.buffer.trimToSize();
+        this.buffer.add(4, 5, 6);
+
+        assertThat("Trimmed buffer lost points.", this.buffer.size(), is(2));
+        assertThat("Trimmed buffer lost coordinates.", this.buffer.getZ(0), is(3.0));
+    }
+
+    /**
+     * Tests that sealing splits long segments and keeps their flags.
+     */
+    @Test
+    public void testSealSplitsSegments() {
+        this.buffer.beginSegment(PointBuffer.TIER_EDGE);
+        this.buffer.add(0, 0, 0);
+        this.buffer.beginSegment(PointBuffer.TIER_FILL);
+        for (int i = 0; i < PointBuffer.MAX_SEGMENT_POINTS + 1; i++) {
+            this.buffer.add(i, 0, 0);
+        }
+        this.buffer.seal();
+
+        assertThat("Long segment was not split.", this.buffer.getSegmentCount(), is(3));
+        assertThat("Outline segment was flagged as fill.", this.buffer.isFillSegment(0), is(false));
+        assertThat("Split segment lost its fill flag.", this.buffer.isFillSegment(2), is(true));
+        assertThat("Split segment has the wrong end.", this.buffer.getSegmentEnd(2), is(this.buffer.size()));
+        assertThat("Segment bounds are wrong.", this.buffer.getSegmentDistanceSquared(2, 33, 0, 0), is(1.0));
+    }
+
+    /**
+     * Tests that sealing quantizes coordinates to 1/16 block, also far away from the origin.
+     */
+    @Test
+    public void testSealQuantizesCoordinates() {
+        this.buffer.add(-0.5, 64, 1.03);
+        this.buffer.add(29999984.25, 255, -29999984.5);
+        this.buffer.seal();
+
+        assertThat("Grid coordinate was not kept exactly.", this.buffer.getX(0), is(-0.5));
+        assertThat("Coordinate was not rounded to 1/16 block.", this.buffer.getZ(0), is(1.0));
+        assertThat("Far coordinate was not kept exactly.", this.buffer.getX(1), is(29999984.25));
+        assertThat("Far coordinate was not kept exactly.", this.buffer.getZ(1), is(-29999984.5));
+    }
+
+    /**
+     * Tests that culling keeps the indices of points in range, before and after sealing.
+     */
+    @Test
+    public void testCullKeepsPointsInRange() {
+        for (int i = 0; i < 10; i++) {
+            this.buffer.add(i, 0, 0);
+        }
+        final int[] indices = new int[10];
+
+        assertThat("Unsealed cull kept the wrong points.", this.buffer.cull(0, 10, 1, 2, 0, 0, 4, indices, 0), is(5));
+        assertThat("Unsealed cull kept the wrong first point.", indices[0], is(0));
+
+        this.buffer.seal();
+
+        assertThat("Sealed cull kept the wrong points.", this.buffer.cull(0, 10, 2, 6, 0, 0, 4, indices, 0), is(3));
+        assertThat("Sealed cull kept the wrong first point.", indices[0], is(4));
+        assertThat("Sealed cull kept the wrong last point.", indices[2], is(8));
+    }
+}
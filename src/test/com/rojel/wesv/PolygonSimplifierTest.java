@@ -0,0 +1,75 @@
+/***
+ * Unit tests for the PolygonSimplifier class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the PolygonSimplifier class.
+ */
+public class PolygonSimplifierTest {
+
+    /**
+     * Tests that the corners of a square are kept while vertices on or close to its sides are dropped.
+     */
+    @Test
+    public void testKeepsCorners() {
+        final double[] xs = { 0, 5, 10, 10, 10, 5, 0, 0 };
+        final double[] zs = { 0, 0.2, 0, 5, 10, 10, 10, 5 };
+        final double[] significance = PolygonSimplifier.significance(xs, zs);
+
+        assertThat("Corners were not kept.", PolygonSimplifier.simplify(significance, 1.0),
+                is(new int[] { 0, 2, 4, 6 }));
+        assertThat("Vertex off the side was dropped below its distance.",
+                PolygonSimplifier.simplify(significance, 0.1), is(new int[] { 0, 1, 2, 4, 6 }));
+    }
+
+    /**
+     * Tests that corners are kept even when the tolerance exceeds the size of the polygon.
+     */
+    @Test
+    public void testKeepsAnchorsAtAnyTolerance() {
+        final double[] xs = { 0, 10, 10, 0 };
+        final double[] zs = { 0, 0, 10, 10 };
+
+        assertThat("Anchors were dropped.",
+                PolygonSimplifier.simplify(PolygonSimplifier.significance(xs, zs), 100.0), is(new int[] { 0, 2 }));
+        assertThat("Triangle vertex was dropped.", PolygonSimplifier
+                .simplify(PolygonSimplifier.significance(new double[3], new double[3]), 100.0).length, is(3));
+    }
+
+    /**
+     * Tests that the outline of a larger tolerance only keeps vertices the outline of a smaller one keeps.
+     */
+    @Test
+    public void testOutlinesAreNested() {
+        final int n = 40;
+        final double[] xs = new double[n];
+        final double[] zs = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            final double radius = 20 + (i % 3) * 1.5;
+            xs[i] = radius * Math.cos(2 * Math.PI * i / n);
+            zs[i] = radius * Math.sin(2 * Math.PI * i / n);
+        }
+
+        final double[] significance = PolygonSimplifier.significance(xs, zs);
+        for (double tolerance = 0.5; tolerance < 8.0; tolerance += 0.5) {
+            final int[] finer = PolygonSimplifier.simplify(significance, tolerance);
+            final int[] coarser = PolygonSimplifier.simplify(significance, tolerance + 0.5);
+            int j = 0;
+
+            for (final int vertex : coarser) {
+                while (j < finer.length && finer[j] != vertex) {
+                    j++;
+                }
+                assertThat("Coarser outline kept a vertex the finer one dropped.", j < finer.length, is(true));
+            }
+        }
+    }
+}
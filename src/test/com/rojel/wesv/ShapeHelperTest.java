@@ -0,0 +1,130 @@
+/***
+ * Unit tests for the ShapeHelper class.
+ */
+
+package com.rojel.wesv;
+
+import static com.rojel.wesv.TestWorlds.WE_WORLD;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+
+/**
+ * Unit tests for the ShapeHelper class.
+ */
+public class ShapeHelperTest {
+
+    /**
+     * Shape helper under test.
+     */
+    @Rule
+    public final TestWorlds.ShapeHelperRule shapeHelper = new TestWorlds.ShapeHelperRule();
+
+    /**
+     * Tests that reusing the pieces of the previous points gives the same points as plotting from scratch.
+     */
+    @Test
+    public void testReusedPiecesMatchFullReplot() {
+        this.assertReplotMatches(new CuboidRegion(WE_WORLD, new Vector(0, 0, 0), new Vector(20, 10, 20)),
+                new CuboidRegion(WE_WORLD, new Vector(0, 0, 0), new Vector(20, 10, 35)));
+        this.assertReplotMatches(polygon(new BlockVector2D(0, 0), new BlockVector2D(30, 0),
+                new BlockVector2D(30, 20), new BlockVector2D(0, 25)),
+                polygon(new BlockVector2D(0, 0), new BlockVector2D(30, 0), new BlockVector2D(40, 30),
+                        new BlockVector2D(0, 25)));
+        this.assertReplotMatches(
+                new CylinderRegion(WE_WORLD, new Vector(0, 0, 0), new Vector2D(12, 12), 0, 10),
+                new CylinderRegion(WE_WORLD, new Vector(0, 0, 0), new Vector2D(12, 12), 0, 16));
+    }
+
+    /**
+     * Tests that plotting the pieces of a selection in parallel gives the same points as plotting them in order.
+     */
+    @Test
+    public void testParallelPlotMatchesSequentialPlot() throws ReflectiveOperationException {
+        final Configuration parallelConfig = new Configuration(null);
+        setConfigValue(parallelConfig, "parallelPlottingThreshold", 1);
+        setConfigValue(parallelConfig, "shapeWorkerThreads", 4);
+        setConfigValue(this.shapeHelper.getConfig(), "parallelPlottingThreshold", 0);
+        this.shapeHelper.get().reload();
+
+        final ShapeHelper parallel = new ShapeHelper(parallelConfig);
+        final PlotSettings settings = new PlotSettings(this.shapeHelper.getConfig());
+        final Region[] regions = { new CuboidRegion(WE_WORLD, new Vector(0, 0, 0), new Vector(120, 40, 90)),
+                polygon(new BlockVector2D(0, 0), new BlockVector2D(80, 10), new BlockVector2D(60, 70),
+                        new BlockVector2D(-10, 50)),
+                new EllipsoidRegion(WE_WORLD, new Vector(0, 64, 0), new Vector(50, 20, 30)) };
+
+        try {
+            for (final Region region : regions) {
+                final PointBuffer sequential = this.shapeHelper.plot(region, settings, null);
+                final PointBuffer forked = TestWorlds.plot(parallel, region, settings, null);
+
+                assertThat("Parallel plot differs from the sequential one.", coordinates(forked),
+                        is(coordinates(sequential)));
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Plots a region after another one, reusing its pieces, and compares the result to plotting it on its own.
+     */
+    private void assertReplotMatches(final Region before, final Region after) {
+        final PlotSettings settings = new PlotSettings(this.shapeHelper.getConfig());
+        final PointBuffer previous = this.shapeHelper.plot(before, settings, null);
+        final PointBuffer reused = this.shapeHelper.plot(after, settings, previous);
+        final PointBuffer full = this.shapeHelper.plot(after, settings, null);
+
+        assertThat("Changed region was not plotted larger.", full.size() > previous.size(), is(true));
+        assertThat("Reused plot differs from a full replot.", coordinates(reused), is(coordinates(full)));
+    }
+
+    private static Polygonal2DRegion polygon(final BlockVector2D... points) {
+        return new Polygonal2DRegion(WE_WORLD, Arrays.asList(points), 0, 12);
+    }
+
+    /**
+     * Overrides a configuration value, given by its key in config.yml, without loading a configuration file.
+     */
+    @SuppressWarnings("unchecked")
+    private static void setConfigValue(final Configuration config, final String key, final Object value)
+            throws ReflectiveOperationException {
+        final Field field = Configuration.class.getDeclaredField("configItems");
+        field.setAccessible(true);
+
+        for (final Map.Entry<Object, Object> item : ((Map<Object, Object>) field.get(config)).entrySet()) {
+            if (item.getKey().toString().equals(key)) {
+                item.setValue(value);
+            }
+        }
+    }
+
+    /**
+     * Copies the coordinates of all points in order.
+     */
+    private static double[] coordinates(final PointBuffer points) {
+        final double[] coordinates = new double[points.size() * 3];
+        for (int i = 0; i < points.size(); i++) {
+            coordinates[i * 3] = points.getX(i);
+            coordinates[i * 3 + 1] = points.getY(i);
+            coordinates[i * 3 + 2] = points.getZ(i);
+        }
+        return coordinates;
+    }
+}
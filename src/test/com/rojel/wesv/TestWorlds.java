@@ -0,0 +1,80 @@
+/***
+ * Shared fixture for the unit tests and benchmarks.
+ */
+
+package com.rojel.wesv;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.rules.ExternalResource;
+
+import com.sk89q.worldedit.regions.Region;
+
+/**
+ * Worlds to plot test regions in without a running server, and a shape helper to plot them with.
+ */
+final class TestWorlds {
+
+    /**
+     * WorldEdit world the test regions are in, only its name is ever read.
+     */
+    static final com.sk89q.worldedit.world.World WE_WORLD = (com.sk89q.worldedit.world.World) Proxy
+            .newProxyInstance(TestWorlds.class.getClassLoader(),
+                    new Class<?>[] { com.sk89q.worldedit.world.World.class },
+                    (proxy, method, args) -> "getName".equals(method.getName()) ? "world" : null);
+
+    /**
+     * Bukkit world the points are plotted in, only compared by identity.
+     */
+    static final org.bukkit.World WORLD = (org.bukkit.World) Proxy.newProxyInstance(
+            TestWorlds.class.getClassLoader(), new Class<?>[] { org.bukkit.World.class },
+            (proxy, method, args) -> "equals".equals(method.getName()) ? proxy == args[0]
+                    : "hashCode".equals(method.getName()) ? System.identityHashCode(proxy) : null);
+
+    private TestWorlds() {
+    }
+
+    /**
+     * Plots a region in the test world.
+     */
+    static PointBuffer plot(final ShapeHelper shapeHelper, final Region region, final PlotSettings settings,
+            final PointBuffer previous) {
+        return shapeHelper.plotPoints(region, WORLD, RegionFingerprint.of(region), settings, previous);
+    }
+
+    /**
+     * Rule creating a shape helper with the default configuration before every test and stopping its threads after
+     * it.
+     */
+    static final class ShapeHelperRule extends ExternalResource {
+
+        private Configuration config;
+        private ShapeHelper shapeHelper;
+
+        @Override
+        protected void before() {
+            this.config = new Configuration(null);
+            this.shapeHelper = new ShapeHelper(this.config);
+        }
+
+        @Override
+        protected void after() {
+            this.shapeHelper.shutdown();
+        }
+
+        Configuration getConfig() {
+            return this.config;
+        }
+
+        ShapeHelper get() {
+            return this.shapeHelper;
+        }
+
+        /**
+         * Plots a region in the test world with the shape helper of the current test.
+         */
+        PointBuffer plot(final Region region, final PlotSettings settings, final PointBuffer previous) {
+            return TestWorlds.plot(this.shapeHelper, region, settings, previous);
+        }
+    }
+}
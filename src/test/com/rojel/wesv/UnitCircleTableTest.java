@@ -0,0 +1,59 @@
+/***
+ * Unit tests for the UnitCircleTable class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the UnitCircleTable class.
+ */
+public class UnitCircleTableTest {
+
+    /**
+     * Tests that sample counts are kept up to 64 and rounded up to 16 steps per power of two above.
+     */
+    @Test
+    public void testRoundSamples() {
+        assertThat("Sample count was not raised to 1.", UnitCircleTable.roundSamples(0), is(1));
+        assertThat("Small sample count was rounded.", UnitCircleTable.roundSamples(64), is(64));
+        assertThat("Sample count was not rounded up.", UnitCircleTable.roundSamples(65), is(68));
+        assertThat("Sample count was not rounded up.", UnitCircleTable.roundSamples(1000), is(1024));
+        assertThat("Rounded sample count was rounded again.", UnitCircleTable.roundSamples(1024), is(1024));
+    }
+
+    /**
+     * Tests that a table holds evenly spaced points on the unit circle and is shared between callers.
+     */
+    @Test
+    public void testTableIsReused() {
+        final double[] table = UnitCircleTable.get(68);
+
+        assertThat("Table has the wrong length.", table.length, is(136));
+        assertThat("First point is not at angle 0.", table[0], is(1.0));
+        assertThat("Point is not on the unit circle.", Math.abs(Math.hypot(table[34], table[35]) - 1.0) < 1e-12,
+                is(true));
+        assertThat("Point 17 of 68 is not at a quarter turn.", Math.abs(table[35] - 1.0) < 1e-12, is(true));
+        assertThat("Table was computed again.", UnitCircleTable.get(68), is(sameInstance(table)));
+    }
+
+    /**
+     * Tests that the least recently used tables are evicted once too many samples are cached.
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsedTables() {
+        final double[] small = UnitCircleTable.get(3);
+        final double[] large = UnitCircleTable.get(1 << 17);
+        final double[] larger = UnitCircleTable.get((1 << 17) + (1 << 13));
+
+        assertThat("Newest table was evicted.", UnitCircleTable.get((1 << 17) + (1 << 13)), is(sameInstance(larger)));
+        assertThat("Eldest table was kept.", UnitCircleTable.get(3), is(not(sameInstance(small))));
+        assertThat("Table over the limit was kept.", UnitCircleTable.get(1 << 17), is(not(sameInstance(large))));
+    }
+}
@@ -0,0 +1,140 @@
+/***
+ * Unit tests for the VisibleSet class.
+ */
+
+package com.rojel.wesv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the VisibleSet class.
+ */
+public class VisibleSetTest {
+
+    /**
+     * Number of collected points of the buffer.
+     */
+    private static final int BUFFER_POINTS = 23;
+
+    /**
+     * Number of collected points of the wireframe.
+     */
+    private static final int WIREFRAME_POINTS = 14;
+
+    /**
+     * Visible set under test, holding buffer points with X from 0 and wireframe points with X from 1000.
+     */
+    private VisibleSet visibleSet;
+
+    /**
+     * X coordinates of the particles sent so far.
+     */
+    private List<Integer> sent;
+
+    /**
+     * Collects buffer and wireframe points into a fresh visible set.
+     */
+    @Before
+    public void setUp() {
+        final PointBuffer points = new PointBuffer(null, 1);
+        this.visibleSet = new VisibleSet();
+        this.sent = new ArrayList<>();
+        this.visibleSet.reset(points, null, 0, 0, 0, 0, 0);
+
+        for (int i = 0; i < BUFFER_POINTS; i++) {
+            points.add(i, 0, 0);
+            this.visibleSet.addPoint(i);
+        }
+        for (int i = 0; i < WIREFRAME_POINTS; i++) {
+            this.visibleSet.addWireframePoint(1000 + i, 0, 0);
+        }
+    }
+
+    /**
+     * Tests that sending slice by slice sends every point exactly once, each slice getting every n-th point.
+     */
+    @Test
+    public void testSlicesSendEveryPointOnce() {
+        final int slices = 4;
+        final int size = BUFFER_POINTS + WIREFRAME_POINTS;
+
+        for (int slice = 0; slice < slices; slice++) {
+            final int before = this.sent.size();
+            this.visibleSet.due(slice, slices);
+            final int pending = this.visibleSet.getPending();
+
+            assertThat("Slice has the wrong number of pending points.", pending,
+                    is((size - slice + slices - 1) / slices));
+            assertThat("Slice sent a different number of points than pending.",
+                    this.visibleSet.send(this::emit, Integer.MAX_VALUE), is(pending));
+            assertThat("Sent points are still pending.", this.visibleSet.getPending(), is(0));
+
+            for (int i = before; i < this.sent.size(); i++) {
+                assertThat("Point was sent in the wrong slice.", position(this.sent.get(i)) % slices, is(slice));
+            }
+        }
+
+        assertSentOnce(size);
+    }
+
+    /**
+     * Tests that the limit is never exceeded and that the rest stays pending for the next call.
+     */
+    @Test
+    public void testLimitKeepsRestPending() {
+        final int slices = 3;
+        final int size = BUFFER_POINTS + WIREFRAME_POINTS;
+        this.visibleSet.due(slices - 1, slices);
+
+        while (this.visibleSet.getPending() > 0) {
+            final int pending = this.visibleSet.getPending();
+            final int sent = this.visibleSet.send(this::emit, 5);
+
+            assertThat("Limit was exceeded.", sent <= 5, is(true));
+            assertThat("Pending points do not account for the sent ones.", this.visibleSet.getPending(),
+                    is(pending - sent));
+        }
+
+        assertThat("Nothing is sent once every slice is done.", this.visibleSet.send(this::emit, 5), is(0));
+        assertSentOnce(size);
+
+        this.visibleSet.rewind();
+        assertThat("Rewound set has due points.", this.visibleSet.getPending(), is(0));
+        this.visibleSet.due(0, 1);
+        assertThat("Rewound set does not send everything again.", this.visibleSet.getPending(), is(size));
+    }
+
+    /**
+     * Records a sent particle.
+     */
+    private void emit(final double x, final double y, final double z) {
+        this.sent.add((int) x);
+    }
+
+    /**
+     * Checks that every point was sent exactly once.
+     */
+    private void assertSentOnce(final int size) {
+        final boolean[] seen = new boolean[size];
+
+        assertThat("Wrong number of points was sent.", this.sent.size(), is(size));
+        for (final int x : this.sent) {
+            assertThat("Point was sent twice.", seen[position(x)], is(false));
+            seen[position(x)] = true;
+        }
+    }
+
+    /**
+     * Retrieves the position of a sent point in the visible set from its X coordinate.
+     */
+    private static int position(final int x) {
+        return x >= 1000 ? BUFFER_POINTS + x - 1000 : x;
+    }
+}
@@ -0,0 +1,141 @@
+/***
+ * Unit tests for the Wireframe class.
+ */
+
+package com.rojel.wesv;
+
+import static com.rojel.wesv.TestWorlds.WE_WORLD;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+
+/**
+ * Unit tests for the Wireframe class.
+ */
+public class WireframeTest {
+
+    /**
+     * Distance the viewers see particles in.
+     */
+    private static final double DISTANCE = 24.0;
+
+    /**
+     * Number of viewers each region is sampled for, spread along its plotted points.
+     */
+    private static final int VIEWERS = 5;
+
+    /**
+     * Points within this distance of the edge of the viewing sphere may be rounded to either side of it.
+     */
+    private static final double BOUNDARY = 0.1;
+
+    /**
+     * Shape helper plotting the regions.
+     */
+    @Rule
+    public final TestWorlds.ShapeHelperRule shapeHelper = new TestWorlds.ShapeHelperRule();
+
+    /**
+     * Tests the wireframe of a cuboid against its plotted points.
+     */
+    @Test
+    public void testCuboidMatchesPlottedPoints() {
+        this.assertMatchesPlottedPoints(new CuboidRegion(WE_WORLD, new Vector(0, 60, 0), new Vector(70, 90, 50)));
+    }
+
+    /**
+     * Tests the wireframe of a round cylinder against its plotted points.
+     */
+    @Test
+    public void testCylinderMatchesPlottedPoints() {
+        this.assertMatchesPlottedPoints(
+                new CylinderRegion(WE_WORLD, new Vector(10, 64, 10), new Vector2D(30, 30), 64, 84));
+    }
+
+    /**
+     * Tests the wireframe of a sphere against its plotted points.
+     */
+    @Test
+    public void testEllipsoidMatchesPlottedPoints() {
+        this.assertMatchesPlottedPoints(new EllipsoidRegion(WE_WORLD, new Vector(0, 80, 0), new Vector(25, 25, 25)));
+    }
+
+    /**
+     * Tests the wireframe of a polygon against its plotted points.
+     */
+    @Test
+    public void testPolygonMatchesPlottedPoints() {
+        this.assertMatchesPlottedPoints(new Polygonal2DRegion(WE_WORLD, Arrays.asList(new BlockVector2D(0, 0),
+                new BlockVector2D(50, 7), new BlockVector2D(45, 60), new BlockVector2D(-12, 38)), 64, 80));
+    }
+
+    /**
+     * Samples the wireframe of a region for viewers close to different parts of it and compares the points to the
+     * plotted points within the viewing distance. Every sampled point has to be plotted and every
+     * plotted point clearly inside of the viewing sphere has to be sampled.
+     */
+    private void assertMatchesPlottedPoints(final Region region) {
+        final PlotSettings settings = new PlotSettings(this.shapeHelper.getConfig());
+        final PointBuffer plotted = this.shapeHelper.plot(region, settings, null);
+        final Wireframe wireframe = this.shapeHelper.plot(region, settings.toWireframe(), null).getWireframe();
+        final double[][] viewers = new double[VIEWERS][];
+
+        for (int v = 0; v < VIEWERS; v++) {
+            final int i = plotted.size() * v / VIEWERS;
+            viewers[v] = new double[] { plotted.getX(i) + 2.3 * v - 3.1, plotted.getY(i) + 1.7,
+                    plotted.getZ(i) - 1.9 * v + 0.6 };
+        }
+
+        for (final double[] viewer : viewers) {
+            final Set<Long> sampled = new HashSet<>();
+            final PointCursor cursor = wireframe.cursor(viewer[0], viewer[1], viewer[2], DISTANCE, 0, null, null);
+
+            while (cursor.next()) {
+                sampled.add(key(cursor.getX(), cursor.getY(), cursor.getZ()));
+            }
+
+            final Set<Long> expected = new HashSet<>();
+            final Set<Long> all = new HashSet<>();
+            for (int i = 0; i < plotted.size(); i++) {
+                final long key = key(plotted.getX(i), plotted.getY(i), plotted.getZ(i));
+                final double dx = plotted.getX(i) - viewer[0];
+                final double dy = plotted.getY(i) - viewer[1];
+                final double dz = plotted.getZ(i) - viewer[2];
+
+                all.add(key);
+                if (Math.sqrt(dx * dx + dy * dy + dz * dz) < DISTANCE - BOUNDARY) {
+                    expected.add(key);
+                }
+            }
+
+            assertThat("Viewer sees no points, the test is meaningless.", expected.isEmpty(), is(false));
+            assertThat("Wireframe sampled a point that is not plotted.", all.containsAll(sampled), is(true));
+            assertThat("Wireframe missed a plotted point in range.", sampled.containsAll(expected), is(true));
+        }
+    }
+
+    /**
+     * Packs the coordinates of a point, rounded to the grid of sealed point buffers, into a long.
+     */
+    private static long key(final double x, final double y, final double z) {
+        final long qx = Math.round(x * QuantizedPoints.STEPS_PER_BLOCK) & 0x1FFFFF;
+        final long qy = Math.round(y * QuantizedPoints.STEPS_PER_BLOCK) & 0x1FFFFF;
+        final long qz = Math.round(z * QuantizedPoints.STEPS_PER_BLOCK) & 0x1FFFFF;
+        return qx << 42 | qy << 21 | qz;
+    }
+}